@@ -0,0 +1,94 @@
+package org.ferrilidium.args;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Building the effective configuration for one parse, from a few arguments over two layers of defaults, and reading a few
+ * values from it: by copying everything into a fresh HashMap (merge) and through Result.layered() (layered).  The merge
+ * grows with the size of the defaults; layered shouldn't.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigBenchmark {
+	@Param({"20", "500"})
+	public int defaultCount;
+
+	private final FeSimpleArgs parser = new FeSimpleArgs();
+	private Map<String, String> env;
+	private Map<String, String> file;
+	private ConfigLayer envLayer;
+	private ConfigLayer fileLayer;
+	private FeSimpleArgs.Result result;
+
+	@Setup
+	public void setup() {
+		env = new HashMap<>();
+		file = new HashMap<>();
+		for (int ii=0; ii < defaultCount; ii++) {
+			env.put("env-option" + ii, "e" + ii);
+			file.put("file-option" + ii, "f" + ii);
+		}
+		envLayer = ConfigLayer.of("env", env);
+		fileLayer = ConfigLayer.of("file", file);
+		result = parser.parse("--host=localhost --port=8080 -v");
+	}
+
+	@Benchmark
+	public void merge(Blackhole bh) {
+		Map<String, String> config = new HashMap<>(file);
+		config.putAll(env);
+		config.putAll(result.args);
+		bh.consume(config.get("host"));
+		bh.consume(config.get("env-option1"));
+		bh.consume(config.get("file-option1"));
+	}
+
+	@Benchmark
+	public void layered(Blackhole bh) {
+		Layered config = result.layered(envLayer, fileLayer);
+		bh.consume(config.get("host"));
+		bh.consume(config.get("env-option1"));
+		bh.consume(config.get("file-option1"));
+	}
+}
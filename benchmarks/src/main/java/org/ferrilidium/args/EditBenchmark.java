@@ -0,0 +1,84 @@
+package org.ferrilidium.args;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * A keystroke in the middle of a command line of 10, 100 and 1,000 arguments (typing a character into a value, then deleting
+ * it again), kept parsed by parsing the whole line after each one (reparse) and by IncrementalParse.edit (edit).  The time
+ * for reparse grows with the line; the time for edit shouldn't grow at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EditBenchmark {
+	@Param({"10", "100", "1000"})
+	public int argCount;
+
+	private final FeSimpleArgs parser = new FeSimpleArgs();
+	private final IncrementalParse incremental = new IncrementalParse();
+	private final StringBuilder line = new StringBuilder();
+	private int offset;
+
+	@Setup
+	public void setup() {
+		line.setLength(0);
+		for (int ii=0; ii < argCount; ii++) {
+			if (ii == argCount / 2)
+				offset = line.length() + 8;
+			line.append("--option").append(ii).append(" = \"some value\" -v p").append(ii).append(' ');
+		}
+		incremental.parse(line);
+	}
+
+	@Benchmark
+	public void reparse(Blackhole bh) {
+		line.insert(offset, 'x');
+		bh.consume(parser.parse(line.toString()));
+		line.deleteCharAt(offset);
+		bh.consume(parser.parse(line.toString()));
+	}
+
+	@Benchmark
+	public void edit(Blackhole bh) {
+		bh.consume(incremental.edit(offset, 0, "x"));
+		bh.consume(incremental.edit(offset, 1, ""));
+	}
+}
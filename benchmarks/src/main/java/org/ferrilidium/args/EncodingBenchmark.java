@@ -0,0 +1,103 @@
+package org.ferrilidium.args;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Handing a Result of 50 arguments and 20 parameters over as bytes: Java serialization of a HashMap and an ArrayList
+ * (serialize, and deserialize then look up one argument) against EncodedResult (encode, and read then look up one argument).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodingBenchmark {
+	private FeSimpleArgs.Result result;
+	private byte[] serialized;
+	private byte[] encoded;
+
+	@Setup
+	public void setup() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int ii=0; ii < 50; ii++)
+			sb.append("--option").append(ii).append("=value").append(ii).append(' ');
+		sb.append("--");
+		for (int ii=0; ii < 20; ii++)
+			sb.append(" /some/path/file").append(ii);
+		result = new FeSimpleArgs().parse(sb.toString());
+		serialized = serialize();
+		encoded = EncodedResult.encode(result);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream (bytes)) {
+			out.writeObject(new HashMap<>(result.args));
+			out.writeObject(new ArrayList<>(result.params));
+		}
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public void deserializeAndGet(Blackhole bh) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream (new ByteArrayInputStream (serialized))) {
+			bh.consume(((Map<String, String>) in.readObject()).get("option25"));
+			bh.consume(in.readObject());
+		}
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		return EncodedResult.encode(result);
+	}
+
+	@Benchmark
+	public String readAndGet() {
+		return EncodedResult.read(encoded).get("option25");
+	}
+}
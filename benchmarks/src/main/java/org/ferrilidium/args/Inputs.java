@@ -0,0 +1,105 @@
+package org.ferrilidium.args;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * The input shapes the benchmarks run against, each available both as a single command line and as pre-split tokens.
+ */
+public enum Inputs {
+	/** short flags joined into clusters, the last of them taking a value (-abcdef -ghijkl=value ...) */
+	CLUSTERS {
+		@Override
+		String line() {
+			StringBuilder sb = new StringBuilder();
+			for (int ii=0; ii < 16; ii++)
+				sb.append(ii % 4 == 3 ? " -abcdef=value" + ii : " -abcdef");
+			return sb.toString();
+		}
+	},
+	/** many long options, half of them with values (--option-1 --option-2=value-2 ...) */
+	LONG_OPTIONS {
+		@Override
+		String line() {
+			StringBuilder sb = new StringBuilder();
+			for (int ii=0; ii < 64; ii++) {
+				sb.append(" --option-").append(ii);
+				if (ii % 2 == 0)
+					sb.append("=value-").append(ii);
+			}
+			return sb.toString();
+		}
+	},
+	/** long quoted values, which the tokenizer splits and the parser has to join back up */
+	QUOTED_VALUES {
+		@Override
+		String line() {
+			StringBuilder sb = new StringBuilder();
+			for (int ii=0; ii < 8; ii++) {
+				sb.append(" --message").append(ii).append("=\"");
+				for (int jj=0; jj < 64; jj++)
+					sb.append(jj == 0 ? "" : " ").append("word").append(jj);
+				sb.append('"');
+			}
+			return sb.toString();
+		}
+	},
+	/** whitespace around the equals sign, as in testWhitespace2 */
+	SPACED_EQUALS {
+		@Override
+		String line() {
+			StringBuilder sb = new StringBuilder();
+			for (int ii=0; ii < 32; ii++)
+				sb.append("  -abc").append("  =  ").append(" Value").append(ii).append("  ");
+			return sb.toString();
+		}
+		@Override
+		String[] tokens() {
+			String[] ret = new String[32 * 3];
+			for (int ii=0; ii < 32; ii++) {
+				ret[ii*3] = "  -abc ";
+				ret[ii*3+1] = " =  ";
+				ret[ii*3+2] = " Value" + ii + "  ";
+			}
+			return ret;
+		}
+	},
+	/** ten thousand tokens: a mix of options, then parameters after the separator */
+	TOKENS_10K {
+		@Override
+		String line() {
+			StringBuilder sb = new StringBuilder();
+			for (int ii=0; ii < 2000; ii++)
+				sb.append(" -v --level=").append(ii).append(" -xyz param").append(ii);
+			sb.append(" --");
+			for (int ii=0; ii < 1999; ii++)
+				sb.append(" file").append(ii);
+			return sb.toString();
+		}
+	};
+
+	abstract String line();
+
+	String[] tokens() {
+		return new FeSimpleArgs().tokenize(line());
+	}
+}
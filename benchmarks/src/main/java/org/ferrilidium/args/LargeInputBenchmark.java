@@ -0,0 +1,75 @@
+package org.ferrilidium.args;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * One argument string of about 8 MB: a few options, then 300,000 file parameters after --, some of them quoted.  Parsed
+ * with the tokens found in one pass (sequential) and by chunks over the common ForkJoinPool (parallel).  The parallel
+ * time should approach the sequential tokenizing time divided by the core count, plus the scan, which stays sequential.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LargeInputBenchmark {
+	private final FeSimpleArgs sequential = new FeSimpleArgs().setParallelThreshold(Integer.MAX_VALUE);
+	private final FeSimpleArgs parallel = new FeSimpleArgs();
+	private String input;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder ("--verbose --output = \"/tmp/out dir\" --");
+		for (int ii=0; ii < 300000; ii++) {
+			if (ii % 50 == 0)
+				sb.append(" \"/data/with space/part-").append(ii).append(".dat\"");
+			else
+				sb.append(" /data/input/part-").append(ii).append(".dat");
+		}
+		input = sb.toString();
+	}
+
+	@Benchmark
+	public FeSimpleArgs.Result sequential() {
+		return sequential.parse(input);
+	}
+
+	@Benchmark
+	public FeSimpleArgs.Result parallel() {
+		return parallel.parse(input);
+	}
+}
@@ -0,0 +1,107 @@
+package org.ferrilidium.args;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Time to parse a batch of command lines one after another, and with each of the parseAll methods.  The parallel
+ * ones should come close to the sequential time divided by the number of cores.  The same lines as a newline-delimited
+ * file in memory are read and parsed one after another (readThenParse), and by a BulkParser (bulk).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseAllBenchmark {
+	@Param({"100000"})
+	public int lineCount;
+
+	private final FeSimpleArgs parser = new FeSimpleArgs();
+	private List<String> lines;
+	private byte[] corpus;
+
+	@Setup
+	public void setup() {
+		// every shape but TOKENS_10K, which is far longer than a command line
+		String[] shapes = { Inputs.CLUSTERS.line(), Inputs.LONG_OPTIONS.line(), Inputs.QUOTED_VALUES.line(), Inputs.SPACED_EQUALS.line() };
+		lines = new ArrayList<>(lineCount);
+		for (int ii=0; ii < lineCount; ii++)
+			lines.add(shapes[ii % shapes.length]);
+		corpus = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public List<FeSimpleArgs.Result> sequential() {
+		List<FeSimpleArgs.Result> ret = new ArrayList<>(lines.size());
+		for (String line: lines)
+			ret.add(parser.parse(line));
+		return ret;
+	}
+
+	@Benchmark
+	public List<FeSimpleArgs.Result> parseAllList() {
+		return parser.parseAll(lines);
+	}
+
+	@Benchmark
+	public List<FeSimpleArgs.Result> parseAllStream() {
+		return parser.parseAll(lines.stream());
+	}
+
+	@Benchmark
+	public void readThenParse(Blackhole bh) throws IOException {
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(corpus), StandardCharsets.UTF_8))) {
+			for (String line; (line = in.readLine()) != null; )
+				bh.consume(parser.parse(line));
+		}
+	}
+
+	@Benchmark
+	public BulkParser.Stats bulk(Blackhole bh) throws IOException, InterruptedException {
+		return new BulkParser(parser).run(Channels.newChannel(new ByteArrayInputStream(corpus)), (record, result) -> bh.consume(result));
+	}
+}
@@ -0,0 +1,168 @@
+package org.ferrilidium.args;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Throughput of the public parse methods and of the tokenize/getNextToken steps underneath them, for each of the Inputs.
+ * Run with the GC profiler to get bytes allocated per operation (see README.md).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+@State(Scope.Thread)
+public class ParseBenchmark {
+	@Param({"CLUSTERS", "LONG_OPTIONS", "QUOTED_VALUES", "SPACED_EQUALS", "TOKENS_10K"})
+	public Inputs input;
+
+	private final FeSimpleArgs parser = new FeSimpleArgs();
+	private final OriginalArgs original = new OriginalArgs();
+	private final FeSimpleArgs measured = new FeSimpleArgs().setListener(new ParseMetrics());
+	private final ParseContext context = new ParseContext();
+	private final FeSimpleArgs.Result reused = new FeSimpleArgs.Result();
+	private String line;
+	private String[] tokens;
+	private String helpLine;
+	private byte[] cmdline;
+
+	@Setup
+	public void setup() {
+		line = input.line();
+		tokens = input.tokens();
+		helpLine = "--help " + line;
+		cmdline = (String.join("\0", tokens) + "\0").getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public FeSimpleArgs.Result parseString() {
+		return parser.parse(line);
+	}
+
+	/* parseString with a ParseMetrics listening, for what the instrumentation costs. */
+	@Benchmark
+	public FeSimpleArgs.Result parseStringMeasured() {
+		return measured.parse(line);
+	}
+
+	@Benchmark
+	public FeSimpleArgs.Result parseTokens() {
+		return parser.parse(tokens);
+	}
+
+	/* parseString and parseTokens with OriginalArgs, the parser as first written, for what the changes since have gained. */
+	@Benchmark
+	public OriginalArgs.Result parseStringOriginal() {
+		return original.parse(line);
+	}
+
+	@Benchmark
+	public OriginalArgs.Result parseTokensOriginal() {
+		return original.parse(tokens);
+	}
+
+	/* The same as parseString, refilling one Result; once it has grown to fit, this should allocate nothing. */
+	@Benchmark
+	public FeSimpleArgs.Result parseInto() {
+		return context.parseInto(line, reused);
+	}
+
+	/* Checking for --help at the start of the input, which parseLazily can answer without reading the rest. */
+	@Benchmark
+	public boolean helpEager() {
+		return parser.parse(helpLine).contains("help");
+	}
+
+	@Benchmark
+	public boolean helpLazy() {
+		return parser.parseLazily(helpLine).contains("help");
+	}
+
+	/* Walking the input with a visitor that only looks at what it is given, which should allocate nothing. */
+	@Benchmark
+	public void visit(Blackhole bh) {
+		context.parse(line, new FeSimpleArgs.ArgVisitor() {
+			@Override
+			public void onShortFlag(char name, CharSequence value) {
+				bh.consume(name);
+				bh.consume(value);
+			}
+			@Override
+			public void onLongOption(CharSequence name, CharSequence value) {
+				bh.consume(name);
+				bh.consume(value);
+			}
+			@Override
+			public void onParam(CharSequence param) {
+				bh.consume(param);
+			}
+		});
+	}
+
+	/* The tokens as NUL-separated UTF-8 (as in /proc/[pid]/cmdline), parsed directly and by decoding and splitting first. */
+	@Benchmark
+	public FeSimpleArgs.Result parseBytes() {
+		return parser.parse(cmdline, 0, cmdline.length, (byte) 0);
+	}
+
+	@Benchmark
+	public FeSimpleArgs.Result decodeThenParseTokens() {
+		return parser.parse(new String(cmdline, StandardCharsets.UTF_8).split("\0"));
+	}
+
+	@Benchmark
+	public String[] tokenize() {
+		return parser.tokenize(line);
+	}
+
+	/* Walks the tokens the way parse(String[]) does, collecting each option with getNextToken. */
+	@Benchmark
+	public void getNextToken(Blackhole bh) {
+		for (int ii=0; ii < tokens.length; ii++) {
+			String token = tokens[ii].trim();
+			if ("--".equals(token))
+				break;
+			if (token.startsWith("-")) {
+				FeSimpleArgs.ParseState nv = parser.getNextToken(tokens, ii);
+				ii = nv.after-1;
+				bh.consume(nv);
+			}
+		}
+	}
+}
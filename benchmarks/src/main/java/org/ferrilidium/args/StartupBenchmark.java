@@ -0,0 +1,144 @@
+package org.ferrilidium.args;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * What the first parse costs a short-lived JVM: for each way of parsing, this starts a fresh JVM several times, and reports
+ * (as medians) the time from the start of main() to the end of the first parse, how many classes that parse loaded, and
+ * how long the whole process took.  JMH can't measure this, since its own harness has loaded most of the JDK by the time a
+ * benchmark runs.  Run it with
+ *     java -cp benchmarks/target/benchmarks.jar org.ferrilidium.args.StartupBenchmark [runs]
+ * "original" is OriginalArgs, the parser as first written, which compiles a regular expression and splits with String.split.
+ */
+public class StartupBenchmark {
+	private static final String LINE = "-abc --name = \"Fred Flintstone\" --size=10 param1 -- param2";
+	private static final String[] TOKENS = { "-abc", "--name", "=", "Fred Flintstone", "--size=10", "param1", "--", "param2" };
+	private static final String[] VARIANTS = { "original", "parse", "parseTokens", "visitor" };
+	private static final String START = "startup-benchmark-start";
+	private static final String END = "startup-benchmark-end";
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 2 && args[0].equals("child")) {
+			child(args[1]);
+			return;
+		}
+		int runs = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+		System.out.println(String.format("%-12s %16s %14s %14s", "variant", "first parse us", "classes", "process ms"));
+		for (String variant: VARIANTS) {
+			long[] firstParse = new long[runs];
+			long[] classes = new long[runs];
+			long[] process = new long[runs];
+			for (int ii=0; ii < runs; ii++) {
+				long start = System.nanoTime();
+				long[] got = run(variant);
+				process[ii] = (System.nanoTime() - start) / 1000000;
+				firstParse[ii] = got[0] / 1000;
+				classes[ii] = got[1];
+			}
+			System.out.println(String.format("%-12s %16d %14d %14d", variant, median(firstParse), median(classes), median(process)));
+		}
+	}
+
+	// runs the variant in a JVM of its own, returning the nanoseconds its first parse took and the classes it loaded
+	private static long[] run(String variant) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		List<String> command = new ArrayList<>(Arrays.asList(java, "-verbose:class", "-cp", System.getProperty("java.class.path"),
+				StartupBenchmark.class.getName(), "child", variant));
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		long nanos = -1;
+		long classes = 0;
+		boolean counting = false;
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			for (String line; (line = in.readLine()) != null; ) {
+				if (line.equals(START))
+					counting = true;
+				else if (line.startsWith(END)) {
+					counting = false;
+					nanos = Long.parseLong(line.substring(END.length()).trim());
+				} else if (counting && (line.contains("class,load") || line.startsWith("[Loaded")))
+					classes++;
+			}
+		}
+		if (process.waitFor() != 0 || nanos < 0)
+			throw new IllegalStateException ("The " + variant + " run failed");
+		return new long[] {nanos, classes};
+	}
+
+	private static void child(String variant) {
+		System.out.println(START);
+		long start = System.nanoTime();
+		Object result;
+		switch (variant) {
+		case "original":
+			result = new OriginalArgs().parse(LINE).args.get("name");
+			break;
+		case "parse":
+			result = new FeSimpleArgs().parse(LINE).get("name");
+			break;
+		case "parseTokens":
+			result = new FeSimpleArgs().parse(TOKENS).get("name");
+			break;
+		case "visitor":
+			CountingVisitor visitor = new CountingVisitor();
+			new FeSimpleArgs().parse(LINE, visitor);
+			result = visitor;
+			break;
+		default:
+			throw new IllegalArgumentException ("Unknown variant \"" + variant + "\"");
+		}
+		long nanos = System.nanoTime() - start;
+		System.out.println(END + " " + nanos);
+		if (result == null)
+			throw new IllegalStateException ("Nothing parsed");
+	}
+	private static class CountingVisitor implements FeSimpleArgs.ArgVisitor {
+		int count;
+		@Override
+		public void onShortFlag(char name, CharSequence value) {
+			count++;
+		}
+		@Override
+		public void onLongOption(CharSequence name, CharSequence value) {
+			count++;
+		}
+		@Override
+		public void onParam(CharSequence param) {
+			count++;
+		}
+	}
+
+	private static long median(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
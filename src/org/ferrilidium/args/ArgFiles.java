@@ -0,0 +1,195 @@
+package org.ferrilidium.args;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Expands javac-style "response files" for FeSimpleArgs.parse(String[]) (see FeSimpleArgs.setArgFiles).  A token @path is
+ * replaced by the tokens in the file at path, which are found the same way as parse(String) finds them (whitespace separates
+ * them, and double quotes group them).  Files can include other files; including a file that is already being expanded is
+ * an error.  A token starting with @@ is not a file: it stands for itself without the first @.
+ * Relative paths are relative to the working directory, as with javac.
+ *
+ * Files are read through a memory mapping, and each one is kept (decoded, with its tokens found) until it changes, so
+ * repeated parses that use the same file only have to check its modification time and size.  An ArgFiles can be shared
+ * between parsers and threads.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public class ArgFiles {
+	private final Charset charset;
+	private final ConcurrentHashMap<Path, Contents> cache = new ConcurrentHashMap<>();
+
+	/** Reads files as UTF-8. */
+	public ArgFiles() {
+		this (StandardCharsets.UTF_8);
+	}
+	public ArgFiles(Charset charset) {
+		this.charset = charset;
+	}
+
+	/** Forgets every file read so far. */
+	public void clear() {
+		cache.clear();
+	}
+
+	/*
+	 * Returns tokens, with any @path tokens expanded.
+	 */
+	FeSimpleArgs.Tokens expand(FeSimpleArgs.Tokens tokens) {
+		return new Expander (tokens);
+	}
+
+	/*
+	 * Returns the contents of the file at path, from the cache if the file hasn't changed since it was read.
+	 */
+	Contents contents(Path path) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		Contents cached = cache.get(path);
+		if (cached != null && cached.modified.equals(attrs.lastModifiedTime()) && cached.size == attrs.size())
+			return cached;
+		CharBuffer text;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			text = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE)
+					.decode(bytes);
+		}
+		Contents ret = new Contents (attrs.lastModifiedTime(), attrs.size(), text);
+		cache.put(path, ret);
+		return ret;
+	}
+
+	/*
+	 * A file that has been read: its text, and the bounds of its tokens (start and end of each, in pairs).
+	 */
+	static final class Contents {
+		final FileTime modified;
+		final long size;
+		final CharBuffer text;
+		final int[] bounds;
+		Contents(FileTime modified, long size, CharBuffer text) {
+			this.modified = modified;
+			this.size = size;
+			this.text = text;
+			int[] bounds = new int[16];
+			int count = 0;
+			FeSimpleArgs.CharTokens tokens = new FeSimpleArgs.CharTokens (text, 0, text.length());
+			while (tokens.next()) {
+				if (count == bounds.length)
+					bounds = Arrays.copyOf(bounds, count * 2);
+				bounds[count++] = tokens.start;
+				bounds[count++] = tokens.end;
+			}
+			this.bounds = Arrays.copyOf(bounds, count);
+		}
+	}
+
+	/*
+	 * Walks the outer tokens, descending into files as their @path tokens come up.
+	 */
+	private class Expander extends FeSimpleArgs.Tokens {
+		private final FeSimpleArgs.Tokens outer;
+		private final List<Path> paths = new ArrayList<>();       // the files being expanded, outermost first
+		private final List<Contents> files = new ArrayList<>();
+		private int[] positions = new int[4];                       // the next bound to use in each file
+
+		Expander(FeSimpleArgs.Tokens outer) {
+			this.outer = outer;
+		}
+
+		@Override
+		boolean next() {
+			while (true) {
+				int depth = files.size();
+				if (depth == 0) {
+					if (! outer.next())
+						return false;
+					text = outer.text;
+					start = outer.start;
+					end = outer.end;
+				} else {
+					Contents file = files.get(depth - 1);
+					int pos = positions[depth - 1];
+					if (pos >= file.bounds.length) {
+						files.remove(depth - 1);
+						paths.remove(depth - 1);
+						continue;
+					}
+					text = file.text;
+					start = file.bounds[pos];
+					end = file.bounds[pos + 1];
+					positions[depth - 1] = pos + 2;
+				}
+				int from = FeSimpleArgs.trimStart(text, start, end);
+				int to = FeSimpleArgs.trimEnd(text, from, end);
+				if (to - from < 2 || text.charAt(from) != '@')
+					return true;
+				if (text.charAt(from + 1) == '@') { // escaped: this is just a token that starts with @
+					start = from + 1;
+					end = to;
+					return true;
+				}
+				include(FeSimpleArgs.substring(text, from + 1, to));
+			}
+		}
+
+		private void include(String name) {
+			try {
+				Path path = Paths.get(name).toRealPath();
+				if (paths.contains(path)) {
+					StringBuilder sb = new StringBuilder();
+					for (Path including: paths)
+						sb.append(including).append(" -> ");
+					throw new IllegalArgumentException ("Circular @file reference: " + sb.append(path));
+				}
+				Contents file = contents(path);
+				if (files.size() == positions.length)
+					positions = Arrays.copyOf(positions, positions.length * 2);
+				positions[files.size()] = 0;
+				paths.add(path);
+				files.add(file);
+			} catch (IOException e) {
+				throw new UncheckedIOException ("Can't read @file " + name, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,405 @@
+package org.ferrilidium.args;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ferrilidium.args.FeSimpleArgs.AsciiBytes;
+import org.ferrilidium.args.FeSimpleArgs.Result;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Parses a corpus of command lines, one per record, where records are separated by a delimiter byte: a newline (the default)
+ * or a NUL, for command lines that may themselves hold newlines.  Each record is UTF-8, and is parsed the same way as
+ * FeSimpleArgs.parse(String).  A corpus can be any size; only a bounded number of records are held at once.
+ *     Stats stats = new BulkParser(new FeSimpleArgs())
+ *             .setWorkers(8)
+ *             .run(Paths.get("invocations.log"), (record, result) -> ...);
+ * The thread calling run() reads the input in large chunks, splits it into records and hands them, in batches, to a bounded
+ * queue read by the worker threads, which parse them.  Once the queue and the Results waiting to be delivered are full, reading
+ * waits for the sink to catch up, so a slow sink slows the whole run down rather than using more memory.
+ * Results are passed to the sink in record order by default, one at a time; with setOrdered(false) they are passed on
+ * straight from the workers, so the sink is called from several threads at once, in no particular order.
+ * A record that can't be parsed (such as one with a quote that is never closed) is counted and passed to the sink's
+ * malformed() instead; the run carries on.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public class BulkParser {
+	private final FeSimpleArgs parser;
+	private byte delimiter = '\n';
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private int queueSize = 0;      // 0 for twice the number of workers
+	private int batchSize = 1024;
+	private int chunkSize = 1 << 20;
+	private boolean ordered = true;
+	private final LongAdder records = new LongAdder();
+	private final LongAdder malformed = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private volatile long started;
+	private volatile long finished;
+
+	/**
+	 * Where the Results go.
+	 */
+	public interface Sink {
+		/** The Result of parsing the record (counting from 0). */
+		void accept (long record, Result result);
+		/** A record that couldn't be parsed. */
+		default void malformed (long record, IllegalArgumentException e) {}
+	}
+
+	/**
+	 * @param parser what to parse each record with (along with its settings, such as a ParseListener)
+	 */
+	public BulkParser (FeSimpleArgs parser) {
+		this.parser = parser;
+	}
+	/** The byte that ends each record; '\n' by default. */
+	public BulkParser setDelimiter (byte delimiter) {
+		this.delimiter = delimiter;
+		return this;
+	}
+	/** The number of worker threads; by default, the number of processors. */
+	public BulkParser setWorkers (int workers) {
+		this.workers = positive ("workers", workers);
+		return this;
+	}
+	/** The most batches waiting for a worker; by default, twice the number of workers. */
+	public BulkParser setQueueSize (int queueSize) {
+		this.queueSize = positive ("queueSize", queueSize);
+		return this;
+	}
+	/** The most records in a batch (the unit a worker takes from the queue); 1024 by default. */
+	public BulkParser setBatchSize (int batchSize) {
+		this.batchSize = positive ("batchSize", batchSize);
+		return this;
+	}
+	/** The number of bytes to read at a time; 1MB by default. */
+	public BulkParser setChunkSize (int chunkSize) {
+		this.chunkSize = positive ("chunkSize", chunkSize);
+		return this;
+	}
+	/** Whether the sink gets the Results in record order (one at a time), or as they are ready; true by default. */
+	public BulkParser setOrdered (boolean ordered) {
+		this.ordered = ordered;
+		return this;
+	}
+	private static int positive(String what, int value) {
+		if (value < 1)
+			throw new IllegalArgumentException (what + " must be positive (got " + value + ")");
+		return value;
+	}
+
+	/**
+	 * Parses every record in the file.
+	 * @param file
+	 * @param sink
+	 * @return the totals for the run
+	 * @throws IOException if the file can't be read
+	 * @throws InterruptedException if the calling thread is interrupted (the workers are stopped too)
+	 */
+	public Stats run (Path file, Sink sink) throws IOException, InterruptedException {
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+			return run (in, sink);
+		}
+	}
+	/**
+	 * Parses every record that can be read from in.  A BulkParser can only do one run at a time.
+	 * @param in
+	 * @param sink
+	 * @return the totals for the run
+	 * @throws IOException if in can't be read
+	 * @throws InterruptedException if the calling thread is interrupted (the workers are stopped too)
+	 */
+	public Stats run (ReadableByteChannel in, Sink sink) throws IOException, InterruptedException {
+		records.reset();
+		malformed.reset();
+		bytes.reset();
+		finished = 0;
+		started = System.nanoTime();
+		Run run = new Run (sink);
+		run.start();
+		try {
+			run.read(in);
+			run.finish();
+		} catch (Stopped e) {
+			// a worker failed; rethrown below
+		} finally {
+			run.stop();
+			finished = System.nanoTime();
+		}
+		run.rethrow();
+		return stats();
+	}
+
+	/**
+	 * Returns the totals so far, for the run that is going on (which can be read from any thread) or the last one.
+	 */
+	public Stats stats() {
+		long end = (finished != 0) ? finished : System.nanoTime();
+		return new Stats (records.sum(), malformed.sum(), bytes.sum(), (started == 0) ? 0 : end - started);
+	}
+
+	/**
+	 * The totals for a run: records (including malformed ones), malformed records, bytes read, and the time taken.
+	 */
+	public static final class Stats {
+		public final long records;
+		public final long malformed;
+		public final long bytes;
+		public final long nanos;
+		Stats(long records, long malformed, long bytes, long nanos) {
+			this.records = records;
+			this.malformed = malformed;
+			this.bytes = bytes;
+			this.nanos = nanos;
+		}
+		public double recordsPerSecond() {
+			return (nanos == 0) ? 0 : records * 1e9 / nanos;
+		}
+		public double bytesPerSecond() {
+			return (nanos == 0) ? 0 : bytes * 1e9 / nanos;
+		}
+		@Override
+		public String toString() {
+			return "records=" + records + ", malformed=" + malformed + ", bytes=" + bytes + ", seconds=" + (nanos / 1e9)
+					+ ", records/s=" + (long) recordsPerSecond() + ", bytes/s=" + (long) bytesPerSecond();
+		}
+	}
+
+	/*
+	 * Some consecutive records: their bytes, copied out of the chunk they were read in, and once parsed their Results (or
+	 * what was wrong with them).
+	 */
+	private static final class Batch {
+		static final Batch END = new Batch (-1, 0);
+		final long seq;
+		final long firstRecord;
+		byte[] data;
+		int length;
+		int[] starts;
+		int[] ends;
+		int count;
+		Result[] results;
+		IllegalArgumentException[] errors;
+		Batch(long seq, long firstRecord) {
+			this.seq = seq;
+			this.firstRecord = firstRecord;
+		}
+	}
+
+	/*
+	 * One call to run(): the reader (the calling thread), the workers, and the hand-over of parsed batches to the sink.
+	 */
+	private final class Run {
+		private final Sink sink;
+		private final int queueCapacity = (queueSize > 0) ? queueSize : workers * 2;
+		private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(queueCapacity);
+		private final Semaphore inFlight = new Semaphore(queueCapacity + workers);  // batches read but not yet delivered
+		private final Thread[] threads = new Thread[workers];
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+		private final Map<Long, Batch> waiting = new HashMap<>();       // parsed, waiting for earlier ones (when ordered)
+		private long nextSeq;
+		private long seq;
+		private long record;
+		private Batch batch;
+
+		Run(Sink sink) {
+			this.sink = sink;
+		}
+		void start() {
+			for (int ii=0; ii < threads.length; ii++) {
+				threads[ii] = new Thread (this::work, "BulkParser-worker-" + ii);
+				threads[ii].setDaemon(true);
+				threads[ii].start();
+			}
+		}
+
+		/* Reads in, splitting it into records and queuing them a batch at a time. */
+		void read(ReadableByteChannel in) throws IOException, InterruptedException {
+			ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+			boolean eof = false;
+			while (! eof) {
+				int got = in.read(chunk);
+				eof = got < 0;
+				if (got > 0)
+					bytes.add(got);
+				byte[] buf = chunk.array();
+				int end = chunk.position();
+				int from = 0;
+				for (int ii=0; ii < end; ii++) {
+					if (buf[ii] == delimiter) {
+						add(buf, from, ii);
+						from = ii + 1;
+					}
+				}
+				if (eof && from < end) {
+					add(buf, from, end);    // the last record needn't have a delimiter
+					from = end;
+				}
+				// keep the start of a record that runs on into the next chunk, making room for it if it fills this one
+				System.arraycopy(buf, from, buf, 0, end - from);
+				chunk.position(end - from);
+				if (! chunk.hasRemaining()) {
+					ByteBuffer bigger = ByteBuffer.allocate(chunk.capacity() * 2);
+					bigger.put(buf, 0, end - from);
+					chunk = bigger;
+				}
+			}
+			if (batch != null)
+				send();
+		}
+		private void add(byte[] buf, int from, int to) throws InterruptedException {
+			if (batch == null) {
+				batch = new Batch (seq++, record);
+				batch.data = new byte[Math.max(256, Math.min(1 << 16, (to - from) * batchSize))];
+				batch.starts = new int[batchSize];
+				batch.ends = new int[batchSize];
+			}
+			int len = to - from;
+			if (batch.length + len > batch.data.length)
+				batch.data = Arrays.copyOf(batch.data, Math.max(batch.data.length * 2, batch.length + len));
+			System.arraycopy(buf, from, batch.data, batch.length, len);
+			batch.starts[batch.count] = batch.length;
+			batch.length += len;
+			batch.ends[batch.count++] = batch.length;
+			record++;
+			if (batch.count == batchSize)
+				send();
+		}
+		private void send() throws InterruptedException {
+			while (! inFlight.tryAcquire(100, TimeUnit.MILLISECONDS))
+				checkFailure();
+			while (! queue.offer(batch, 100, TimeUnit.MILLISECONDS))
+				checkFailure();
+			batch = null;
+		}
+		private void checkFailure() {
+			if (failure.get() != null)
+				throw new Stopped();
+		}
+
+		/* Tells the workers there is nothing more, and waits for them to finish. */
+		void finish() throws InterruptedException {
+			for (int ii=0; ii < threads.length; ii++)
+				while (! queue.offer(Batch.END, 100, TimeUnit.MILLISECONDS))
+					checkFailure();
+			for (Thread thread: threads)
+				thread.join();
+		}
+		/* Stops the workers (if they haven't stopped already). */
+		void stop() throws InterruptedException {
+			for (Thread thread: threads)
+				thread.interrupt();
+			for (Thread thread: threads)
+				thread.join();
+		}
+		/* Throws whatever stopped the run, if anything did. */
+		void rethrow() {
+			Throwable cause = failure.get();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+		}
+
+		private void work() {
+			ParseContext context = new ParseContext (parser);
+			try {
+				for (Batch next; (next = queue.take()) != Batch.END; ) {
+					parse(context, next);
+					if (ordered)
+						deliverInOrder(next);
+					else
+						deliver(next);
+				}
+			} catch (InterruptedException e) {
+				// stopped
+			} catch (Throwable e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+		private void parse(ParseContext context, Batch batch) {
+			AsciiBytes ascii = new AsciiBytes (ByteBuffer.wrap(batch.data, 0, batch.length));
+			batch.results = new Result[batch.count];
+			for (int ii=0; ii < batch.count; ii++) {
+				int start = batch.starts[ii];
+				int len = batch.ends[ii] - start;
+				try {
+					if (isAscii(batch.data, start, len))
+						batch.results[ii] = context.parse(ascii, start, len);
+					else
+						batch.results[ii] = context.parse(new String (batch.data, start, len, StandardCharsets.UTF_8));
+				} catch (IllegalArgumentException e) {
+					if (batch.errors == null)
+						batch.errors = new IllegalArgumentException[batch.count];
+					batch.errors[ii] = e;
+				}
+			}
+		}
+		private boolean isAscii(byte[] data, int start, int len) {
+			for (int ii=start; ii < start + len; ii++)
+				if (data[ii] < 0)
+					return false;
+			return true;
+		}
+		private void deliverInOrder(Batch batch) {
+			synchronized (waiting) {
+				waiting.put(batch.seq, batch);
+				for (Batch next; (next = waiting.remove(nextSeq)) != null; nextSeq++)
+					deliver(next);
+			}
+		}
+		private void deliver(Batch batch) {
+			for (int ii=0; ii < batch.count; ii++) {
+				if (batch.errors != null && batch.errors[ii] != null) {
+					malformed.increment();
+					sink.malformed(batch.firstRecord + ii, batch.errors[ii]);
+				} else {
+					sink.accept(batch.firstRecord + ii, batch.results[ii]);
+				}
+				records.increment();
+			}
+			inFlight.release();
+		}
+	}
+
+	// thrown on the reading thread when a worker has failed, to stop reading (run() then rethrows the worker's failure)
+	private static final class Stopped extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -0,0 +1,155 @@
+package org.ferrilidium.args;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * A fixed set of named values to fall back on when an argument isn't given, such as the contents of a properties file or
+ * some of the environment.  Lookups go through Result.layered(), which checks the Result first and then each layer in turn.
+ * A ConfigLayer is built once and never changes, so one can be shared by any number of threads and parses:
+ *     static final ConfigLayer ENV = ConfigLayer.fromEnvironment("MYAPP_");
+ *     static final ConfigLayer FILE = ConfigLayer.load(Paths.get("myapp.properties"));
+ *     ...
+ *     Layered config = parser.parse(args).layered(ENV, FILE);
+ *     int port = config.getInt("port", 8080);
+ * Names are looked up as CharSequences, without turning them into Strings.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public final class ConfigLayer {
+	private final String name;
+	private final String[] keys;        // open addressed, a power of two in size
+	private final String[] values;      // null for a name with no value
+	private final int size;
+
+	private ConfigLayer(String name, Map<String, String> entries) {
+		this.name = name;
+		int capacity = 2;
+		while (capacity * 3 < entries.size() * 4 + 4)
+			capacity *= 2;
+		keys = new String[capacity];
+		values = new String[capacity];
+		for (Map.Entry<String, String> entry: entries.entrySet()) {
+			String key = entry.getKey();
+			if (key == null)
+				throw new IllegalArgumentException ("A ConfigLayer can't hold a null name (in " + name + ")");
+			int idx = FeSimpleArgs.spread(key.hashCode()) & (capacity - 1);
+			while (keys[idx] != null)
+				idx = (idx+1) & (capacity - 1);
+			keys[idx] = key;
+			values[idx] = entry.getValue();
+		}
+		size = entries.size();
+	}
+
+	/**
+	 * Returns a layer holding a copy of entries.  A null value is a name given without a value, like a flag.
+	 * @param name what to call the layer (see Layered.source())
+	 * @param entries
+	 */
+	public static ConfigLayer of (String name, Map<String, String> entries) {
+		return new ConfigLayer (name, entries);
+	}
+	/**
+	 * Returns a layer holding the properties (including any defaults they have).
+	 * @param name what to call the layer (see Layered.source())
+	 * @param properties
+	 */
+	public static ConfigLayer fromProperties (String name, Properties properties) {
+		Map<String, String> entries = new LinkedHashMap<>();
+		for (String key: properties.stringPropertyNames())
+			entries.put(key, properties.getProperty(key));
+		return new ConfigLayer (name, entries);
+	}
+	/**
+	 * Returns a layer holding the properties in a file (read as UTF-8), named after the file.
+	 * @param file
+	 * @throws IOException if the file can't be read
+	 */
+	public static ConfigLayer load (Path file) throws IOException {
+		Properties properties = new Properties();
+		try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			properties.load(in);
+		}
+		return fromProperties (file.toString(), properties);
+	}
+	/**
+	 * Returns a layer holding the environment variables whose names start with prefix, under the argument names they stand for:
+	 * the rest of the variable's name in lower case, with each _ turned into -.  With the prefix "MYAPP_", MYAPP_LOG_LEVEL gives
+	 * the value of log-level.  The layer is called "env".
+	 * @param prefix
+	 */
+	public static ConfigLayer fromEnvironment (String prefix) {
+		return fromEnvironment (prefix, System.getenv());
+	}
+	/* The same, for the given variables. */
+	static ConfigLayer fromEnvironment (String prefix, Map<String, String> env) {
+		Map<String, String> entries = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry: env.entrySet()) {
+			String key = entry.getKey();
+			if (key.length() > prefix.length() && key.startsWith(prefix))
+				entries.put(key.substring(prefix.length()).toLowerCase().replace('_', '-'), entry.getValue());
+		}
+		return new ConfigLayer ("env", entries);
+	}
+
+	public String name() {
+		return name;
+	}
+	public int size() {
+		return size;
+	}
+	/** Returns true if the layer holds the name, with or without a value. */
+	public boolean contains (CharSequence name) {
+		return slot(name) >= 0;
+	}
+	/** Returns the value the layer holds for the name, or null if it holds none. */
+	public String get (CharSequence name) {
+		int idx = slot(name);
+		return (idx < 0) ? null : values[idx];
+	}
+	/* Returns where the name is in keys, or -1 if it isn't. */
+	int slot(CharSequence name) {
+		int mask = keys.length - 1;
+		for (int idx = FeSimpleArgs.spread(FeSimpleArgs.hash(name)) & mask; keys[idx] != null; idx = (idx+1) & mask)
+			if (FeSimpleArgs.contentEquals(keys[idx], name))
+				return idx;
+		return -1;
+	}
+	/* The value at a slot. */
+	String value(int idx) {
+		return values[idx];
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + size + " entries)";
+	}
+}
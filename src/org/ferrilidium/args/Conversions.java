@@ -0,0 +1,263 @@
+package org.ferrilidium.args;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/*
+ * The values a Result's typed getters (getInt, getDuration, ...) have converted, so that each is only converted once, and the
+ * conversions themselves.
+ * Entries are keyed on the argument name and what it was converted to, and remember the value they were converted from; if
+ * the argument's value has changed since (it is no longer the same object) the entry is out of date and is replaced.
+ * Numbers are kept as the bits of a long and everything else as an Object, so nothing is boxed.
+ * Lookups don't lock: entries are immutable, so a lookup racing with an update either finds a whole entry or misses (and
+ * converts the value again).  Updates are synchronized.
+ */
+final class Conversions {
+	static final byte INT = 1;
+	static final byte LONG = 2;
+	static final byte DOUBLE = 3;
+	static final byte BOOLEAN = 4;
+	static final byte SIZE = 5;
+	static final byte DURATION = 6;
+	static final byte LIST = 7;
+
+	private volatile Converted[] table = new Converted[8];
+	private int size;
+
+	private static final class Converted {
+		final String name;
+		final byte kind;
+		final char separator;      // for LIST
+		final CharSequence source;
+		final long bits;
+		final Object object;
+		Converted(String name, byte kind, char separator, CharSequence source, long bits, Object object) {
+			this.name = name;
+			this.kind = kind;
+			this.separator = separator;
+			this.source = source;
+			this.bits = bits;
+			this.object = object;
+		}
+	}
+
+	/* Returns the bits of value converted to kind (one of the number or boolean kinds). */
+	long bits (CharSequence name, byte kind, CharSequence value) {
+		Converted c = find(name, kind, '\0', value);
+		if (c == null)
+			c = store(new Converted (name.toString(), kind, '\0', value, toBits(name, kind, value), null));
+		return c.bits;
+	}
+	/* Returns value converted to a Duration. */
+	Duration duration (CharSequence name, CharSequence value) {
+		Converted c = find(name, DURATION, '\0', value);
+		if (c == null)
+			c = store(new Converted (name.toString(), DURATION, '\0', value, 0, toDuration(name, value)));
+		return (Duration) c.object;
+	}
+	/* Returns value split on separator. */
+	@SuppressWarnings("unchecked")
+	List<String> list (CharSequence name, char separator, CharSequence value) {
+		Converted c = find(name, LIST, separator, value);
+		if (c == null)
+			c = store(new Converted (name.toString(), LIST, separator, value, 0, toList(value, separator)));
+		return (List<String>) c.object;
+	}
+
+	private int slot(Converted[] t, CharSequence name, byte kind) {
+		return FeSimpleArgs.spread(FeSimpleArgs.hash(name) * 31 + kind) & (t.length - 1);
+	}
+	private Converted find(CharSequence name, byte kind, char separator, CharSequence value) {
+		Converted[] t = table;
+		for (int idx = slot(t, name, kind); t[idx] != null; idx = (idx+1) & (t.length - 1)) {
+			Converted c = t[idx];
+			if (c.kind == kind && FeSimpleArgs.contentEquals(c.name, name))
+				return (c.source == value && c.separator == separator) ? c : null;
+		}
+		return null;
+	}
+	private synchronized Converted store(Converted entry) {
+		Converted[] t = table;
+		int idx = slot(t, entry.name, entry.kind);
+		for (; t[idx] != null; idx = (idx+1) & (t.length - 1)) {
+			if (t[idx].kind == entry.kind && t[idx].name.equals(entry.name)) {
+				t[idx] = entry;
+				return entry;
+			}
+		}
+		if ((size + 1) * 4 > t.length * 3) {
+			Converted[] bigger = new Converted[t.length * 2];
+			for (Converted c: t) {
+				if (c == null)
+					continue;
+				int jj = slot(bigger, c.name, c.kind);
+				while (bigger[jj] != null)
+					jj = (jj+1) & (bigger.length - 1);
+				bigger[jj] = c;
+			}
+			t = bigger;
+			idx = slot(t, entry.name, entry.kind);
+			while (t[idx] != null)
+				idx = (idx+1) & (t.length - 1);
+		}
+		t[idx] = entry;
+		size++;
+		table = t;
+		return entry;
+	}
+
+	private static long toBits(CharSequence name, byte kind, CharSequence value) {
+		switch (kind) {
+		case INT:
+			return toLong(name, value, 0, value.length(), Integer.MIN_VALUE, Integer.MAX_VALUE, "an int");
+		case LONG:
+			return toLong(name, value, 0, value.length(), Long.MIN_VALUE, Long.MAX_VALUE, "a long");
+		case DOUBLE:
+			try {
+				return Double.doubleToRawLongBits(Double.parseDouble(value.toString()));
+			} catch (NumberFormatException e) {
+				throw notA(name, value, "a double");
+			}
+		case BOOLEAN:
+			return toBoolean(name, value) ? 1 : 0;
+		case SIZE:
+			return toSize(name, value);
+		default:
+			throw new IllegalStateException ("Not a number kind: " + kind);
+		}
+	}
+
+	static IllegalArgumentException notA(CharSequence name, CharSequence value, String what) {
+		return new IllegalArgumentException ("The value of \"" + name + "\" is not " + what + ": \"" + value + "\"");
+	}
+
+	// a decimal number with an optional sign, between min and max, without making a String of it
+	static long toLong(CharSequence name, CharSequence value, int start, int end, long min, long max, String what) {
+		int ii = start;
+		boolean negative = false;
+		if (ii < end && (value.charAt(ii) == '-' || value.charAt(ii) == '+'))
+			negative = value.charAt(ii++) == '-';
+		if (ii == end || (negative && min >= 0))
+			throw notA(name, value, what);
+		long ret = 0;           // kept negative, since the range of negative longs is the larger one
+		long limit = negative ? min : -max;
+		for (; ii < end; ii++) {
+			int digit = value.charAt(ii) - '0';
+			if (digit < 0 || digit > 9 || ret < (limit + digit) / 10)
+				throw notA(name, value, what);
+			ret = ret * 10 - digit;
+		}
+		return negative ? ret : -ret;
+	}
+
+	static boolean toBoolean(CharSequence name, CharSequence value) {
+		if (isOneOf(value, "true", "yes", "on", "1"))
+			return true;
+		if (isOneOf(value, "false", "no", "off", "0"))
+			return false;
+		throw notA(name, value, "a boolean");
+	}
+	private static boolean isOneOf(CharSequence value, String... words) {
+		for (String word: words)
+			if (word.length() == value.length() && word.regionMatches(true, 0, value.toString(), 0, word.length()))
+				return true;
+		return false;
+	}
+
+	// a number of bytes, with an optional (1024-based) unit: 10MB, 64k, 2GiB
+	static long toSize(CharSequence name, CharSequence value) {
+		int end = value.length();
+		int digits = end;
+		while (digits > 0 && Character.isLetter(value.charAt(digits-1)))
+			digits--;
+		String unit = value.subSequence(digits, end).toString().toUpperCase();
+		int shift;
+		switch (unit) {
+		case "": case "B":                shift = 0; break;
+		case "K": case "KB": case "KIB":  shift = 10; break;
+		case "M": case "MB": case "MIB":  shift = 20; break;
+		case "G": case "GB": case "GIB":  shift = 30; break;
+		case "T": case "TB": case "TIB":  shift = 40; break;
+		default:
+			throw notA(name, value, "a size");
+		}
+		long count = toLong(name, value, 0, FeSimpleArgs.trimEnd(value, 0, digits), 0, Long.MAX_VALUE, "a size");
+		if (count > (Long.MAX_VALUE >> shift))
+			throw notA(name, value, "a size");
+		return count << shift;
+	}
+
+	// a whole number with a unit (ns, us, ms, s, m, h or d), such as 30s, or ISO-8601 such as PT1M30S
+	static Duration toDuration(CharSequence name, CharSequence value) {
+		int end = value.length();
+		if (end > 0 && (value.charAt(0) == 'P' || value.charAt(0) == 'p' || value.charAt(0) == '-')) {
+			try {
+				return Duration.parse(value.toString());
+			} catch (DateTimeParseException e) {
+				if (value.charAt(0) != '-')
+					throw notA(name, value, "a duration");
+			}
+		}
+		int digits = end;
+		while (digits > 0 && Character.isLetter(value.charAt(digits-1)))
+			digits--;
+		String unit = value.subSequence(digits, end).toString();
+		long count = toLong(name, value, 0, FeSimpleArgs.trimEnd(value, 0, digits), Long.MIN_VALUE, Long.MAX_VALUE, "a duration");
+		try {
+			switch (unit) {
+			case "ns": return Duration.ofNanos(count);
+			case "us": return Duration.ofNanos(Math.multiplyExact(count, 1000L));
+			case "ms": return Duration.ofMillis(count);
+			case "s":  return Duration.ofSeconds(count);
+			case "m":  return Duration.ofMinutes(count);
+			case "h":  return Duration.ofHours(count);
+			case "d":  return Duration.ofDays(count);
+			default:
+				throw notA(name, value, "a duration");
+			}
+		} catch (ArithmeticException e) {
+			throw notA(name, value, "a duration");
+		}
+	}
+
+	// the parts between separators, trimmed, leaving out empty ones
+	static List<String> toList(CharSequence value, char separator) {
+		List<String> ret = new ArrayList<>();
+		int part = 0;
+		for (int ii=0; ii <= value.length(); ii++) {
+			if (ii == value.length() || value.charAt(ii) == separator) {
+				int start = FeSimpleArgs.trimStart(value, part, ii);
+				int end = FeSimpleArgs.trimEnd(value, start, ii);
+				if (start < end)
+					ret.add(FeSimpleArgs.substring(value, start, end));
+				part = ii+1;
+			}
+		}
+		return Collections.unmodifiableList(ret);
+	}
+}
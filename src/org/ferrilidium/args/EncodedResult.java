@@ -0,0 +1,421 @@
+package org.ferrilidium.args;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * A Result in a compact binary form, for passing to another process or keeping on disk, which can be read in place: looking
+ * up an argument or a parameter reads only what it needs, straight from the buffer (which can be a mapped file), and
+ * allocates nothing but the String it returns.
+ *     byte[] bytes = EncodedResult.encode(result);
+ *     ...
+ *     EncodedResult encoded = EncodedResult.read(ByteBuffer.wrap(bytes));
+ *     String user = encoded.get("user");
+ *     Result whole = encoded.toResult();
+ *
+ * The layout (version 1; numbers are big endian, and offsets are from the start of the encoding):
+ *     "FSAR", a version byte, three zero bytes
+ *     int argument count, int parameter count, int string count, int length of the whole encoding
+ *     for each argument, sorted by name (as String.compareTo sorts): int name string, int value string
+ *     for each parameter, in order: int string
+ *     a bit per argument, set if it has no value; then a bit per parameter, set if it is null; both padded to a byte
+ *     padding to a multiple of four bytes
+ *     for each string: int offset
+ *     the strings, each once, each its length in bytes (seven bits a byte, lowest first, with the top bit set on all but the
+ *     last) followed by UTF-8 (with any unpaired surrogate as its own three bytes, so every String comes back as it was)
+ * A reader takes any encoding with its own version, and turns down any other (or anything damaged) with an
+ * IllegalArgumentException.  An EncodedResult can't be changed, and can be shared between threads.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public final class EncodedResult {
+	/** The version of the layout this class writes and reads. */
+	public static final int VERSION = 1;
+	private static final int MAGIC = 0x46534152;  // FSAR
+	private static final int HEADER = 24;
+
+	private final ByteBuffer buffer;   // the encoding, from 0, in big-endian order
+	private final int argCount;
+	private final int paramCount;
+	private final int stringCount;
+	private final int params;          // where each part starts
+	private final int bits;
+	private final int offsets;
+
+	private EncodedResult(ByteBuffer buffer) {
+		if (buffer.remaining() < HEADER || buffer.getInt(0) != MAGIC)
+			throw new IllegalArgumentException ("Not an encoded Result");
+		int version = buffer.get(4) & 0xff;
+		if (version != VERSION)
+			throw new IllegalArgumentException ("Can't read version " + version + " of an encoded Result (only version " + VERSION + ")");
+		argCount = buffer.getInt(8);
+		paramCount = buffer.getInt(12);
+		stringCount = buffer.getInt(16);
+		int length = buffer.getInt(20);
+		if (argCount < 0 || paramCount < 0 || stringCount < 0 || length < HEADER || length > buffer.remaining())
+			throw damaged();
+		long params = HEADER + 8L * argCount;
+		long bits = params + 4L * paramCount;
+		long offsets = align(bits + (argCount + 7) / 8 + (paramCount + 7) / 8);
+		if (offsets + 4L * stringCount > length)
+			throw damaged();
+		buffer.limit(length);
+		this.buffer = buffer;
+		this.params = (int) params;
+		this.bits = (int) bits;
+		this.offsets = (int) offsets;
+	}
+
+	/**
+	 * Reads an encoding from the buffer's position on, without copying it; the EncodedResult is only good for as long as
+	 * what is in the buffer stays the same.  The buffer itself is left as it is.
+	 * @throws IllegalArgumentException if what is there isn't an encoded Result that this version can read
+	 */
+	public static EncodedResult read(ByteBuffer buffer) {
+		return new EncodedResult (buffer.slice().order(ByteOrder.BIG_ENDIAN));
+	}
+	/** Reads the encoding in bytes (without copying them). */
+	public static EncodedResult read(byte[] bytes) {
+		return read(ByteBuffer.wrap(bytes));
+	}
+	/**
+	 * Maps the file, which holds an encoding from its start, and reads it in place.  The mapping stays until the
+	 * EncodedResult is garbage collected.
+	 */
+	public static EncodedResult map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Encodes result.
+	 * @throws IllegalArgumentException if it has a null argument name
+	 */
+	public static byte[] encode(Result result) {
+		Map<String, String> args = result.args;
+		List<String> params = result.params;
+		String[] names = args.keySet().toArray(new String[args.size()]);
+		for (String name: names) {
+			if (name == null)
+				throw new IllegalArgumentException ("Can't encode a null argument name");
+		}
+		Arrays.sort(names);
+		Strings strings = new Strings();
+		int[] argStrings = new int[names.length * 2];
+		for (int ii=0; ii < names.length; ii++) {
+			argStrings[ii*2] = strings.add(names[ii]);
+			argStrings[ii*2 + 1] = strings.add(args.get(names[ii]));
+		}
+		int[] paramStrings = new int[params.size()];
+		for (int ii=0; ii < paramStrings.length; ii++)
+			paramStrings[ii] = strings.add(params.get(ii));
+
+		int offsets = (int) align(HEADER + 8L * names.length + 4L * paramStrings.length + (names.length + 7) / 8 + (paramStrings.length + 7) / 8);
+		int length = offsets + 4 * strings.count + strings.size;
+		ByteBuffer out = ByteBuffer.allocate(length);
+		out.putInt(MAGIC).put((byte) VERSION).put((byte) 0).putShort((short) 0);
+		out.putInt(names.length).putInt(paramStrings.length).putInt(strings.count).putInt(length);
+		for (int index: argStrings)
+			out.putInt(Math.max(index, 0));
+		for (int index: paramStrings)
+			out.putInt(Math.max(index, 0));
+		putBits(out, argStrings, 1, 2);
+		putBits(out, paramStrings, 0, 1);
+		out.position(offsets);
+		int at = offsets + 4 * strings.count;
+		for (int ii=0; ii < strings.count; ii++)
+			out.putInt(at + strings.starts[ii]);
+		out.put(strings.data, 0, strings.size);
+		return out.array();
+	}
+	/** Encodes result into file, replacing what was there. */
+	public static void write(Result result, Path file) throws IOException {
+		Files.write(file, encode(result));
+	}
+
+	/** The number of arguments. */
+	public int argCount() {
+		return argCount;
+	}
+	/** The number of parameters. */
+	public int paramCount() {
+		return paramCount;
+	}
+	/** The number of bytes in the encoding. */
+	public int length() {
+		return buffer.limit();
+	}
+	/** Whether there is an argument with the given name. */
+	public boolean contains(CharSequence name) {
+		return find(name) >= 0;
+	}
+	/** The value of the named argument, or null if it has none (or there isn't one; see contains). */
+	public String get(CharSequence name) {
+		int idx = find(name);
+		if (idx < 0 || bit(bits, idx))
+			return null;
+		return string(buffer.getInt(HEADER + idx*8 + 4));
+	}
+	/** The parameter at idx. */
+	public String param(int idx) {
+		if (idx < 0 || idx >= paramCount)
+			throw new IndexOutOfBoundsException ("Index: " + idx + ", Size: " + paramCount);
+		if (bit(bits + (argCount + 7) / 8, idx))
+			return null;
+		return string(buffer.getInt(params + idx*4));
+	}
+	/** The name of the argument at idx, in order of name. */
+	public String name(int idx) {
+		if (idx < 0 || idx >= argCount)
+			throw new IndexOutOfBoundsException ("Index: " + idx + ", Size: " + argCount);
+		return string(buffer.getInt(HEADER + idx*8));
+	}
+	/** Decodes the whole of it, into a Result that can be changed. */
+	public Result toResult() {
+		Result ret = new Result();
+		for (int ii=0; ii < argCount; ii++)
+			ret.args.put(name(ii), bit(bits, ii) ? null : string(buffer.getInt(HEADER + ii*8 + 4)));
+		for (int ii=0; ii < paramCount; ii++)
+			ret.params.add(param(ii));
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return toResult().toString();
+	}
+
+	/* The index of the named argument, or -1; a binary search which compares the name with each string where it lies. */
+	private int find(CharSequence name) {
+		int lo = 0;
+		int hi = argCount - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = compare(buffer.getInt(HEADER + mid*8), name);
+			if (cmp < 0)
+				lo = mid + 1;
+			else if (cmp > 0)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+	private boolean bit(int at, int idx) {
+		return (buffer.get(at + (idx >>> 3)) & (1 << (idx & 7))) != 0;
+	}
+	/* Where the bytes of string index start (after its length), with the length in the top half. */
+	private long locate(int index) {
+		if (index < 0 || index >= stringCount)
+			throw damaged();
+		int at = buffer.getInt(offsets + index*4);
+		int length = 0;
+		for (int shift=0; ; shift += 7) {
+			if (at < 0 || at >= buffer.limit() || shift > 28)
+				throw damaged();
+			byte b = buffer.get(at++);
+			length |= (b & 0x7f) << shift;
+			if (b >= 0)
+				break;
+		}
+		if (length < 0 || at + length > buffer.limit())
+			throw damaged();
+		return ((long) length << 32) | at;
+	}
+	private String string(int index) {
+		long located = locate(index);
+		int at = (int) located;
+		int end = at + (int) (located >>> 32);
+		char[] chars = new char[end - at];
+		int count = 0;
+		while (at < end) {
+			int c = decode(at, end);
+			at += c >>> 24;
+			c &= 0xffffff;
+			if (c >= 0x10000) {
+				chars[count++] = Character.highSurrogate(c);
+				chars[count++] = Character.lowSurrogate(c);
+			} else {
+				chars[count++] = (char) c;
+			}
+		}
+		return new String (chars, 0, count);
+	}
+	/* Compares string index with name, as String.compareTo would. */
+	private int compare(int index, CharSequence name) {
+		long located = locate(index);
+		int at = (int) located;
+		int end = at + (int) (located >>> 32);
+		int ii = 0;
+		while (at < end) {
+			int c = decode(at, end);
+			at += c >>> 24;
+			c &= 0xffffff;
+			if (c >= 0x10000) {
+				int cmp = compareChar(Character.highSurrogate(c), name, ii++);
+				if (cmp != 0)
+					return cmp;
+				c = Character.lowSurrogate(c);
+			}
+			int cmp = compareChar((char) c, name, ii++);
+			if (cmp != 0)
+				return cmp;
+		}
+		return (ii < name.length()) ? -1 : 0;
+	}
+	private static int compareChar(char c, CharSequence name, int idx) {
+		return (idx < name.length()) ? c - name.charAt(idx) : 1;
+	}
+	/* The code point at at (an unpaired surrogate being one of its own), with the number of bytes it took in the top byte. */
+	private int decode(int at, int end) {
+		int b = buffer.get(at) & 0xff;
+		int length = (b < 0x80) ? 1 : (b < 0xe0) ? 2 : (b < 0xf0) ? 3 : 4;
+		if (at + length > end || (b >= 0x80 && b < 0xc0))
+			throw damaged();
+		int c = (length == 1) ? b : (length == 2) ? b & 0x1f : (length == 3) ? b & 0x0f : b & 0x07;
+		for (int ii=1; ii < length; ii++)
+			c = (c << 6) | (buffer.get(at + ii) & 0x3f);
+		return (length << 24) | c;
+	}
+	private static IllegalArgumentException damaged() {
+		return new IllegalArgumentException ("The encoded Result is damaged or cut short");
+	}
+
+	private static long align(long at) {
+		return (at + 3) & ~3L;
+	}
+	/* One bit for each entry of indexes (from first, every step), set where it is -1 (a null). */
+	private static void putBits(ByteBuffer out, int[] indexes, int first, int step) {
+		int count = indexes.length / step;
+		byte[] bits = new byte[(count + 7) / 8];
+		for (int ii=0; ii < count; ii++) {
+			if (indexes[first + ii*step] < 0)
+				bits[ii >>> 3] |= 1 << (ii & 7);
+		}
+		out.put(bits);
+	}
+	/* The strings of an encoding, each once, written one after another as they will be in it. */
+	private static final class Strings {
+		private String[] strings = new String[16];
+		private int[] table = new int[32];   // open addressed: index + 1 of each string, by hash
+		byte[] data = new byte[256];
+		int[] starts = new int[16];
+		int count;
+		int size;          // of data used
+
+		/* The index of string, or -1 for null. */
+		int add(String string) {
+			if (string == null)
+				return -1;
+			int slot = string.hashCode() & (table.length - 1);
+			for (; table[slot] != 0; slot = (slot + 1) & (table.length - 1)) {
+				if (strings[table[slot] - 1].equals(string))
+					return table[slot] - 1;
+			}
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				strings = Arrays.copyOf(strings, count * 2);
+			}
+			strings[count] = string;
+			table[slot] = count + 1;
+			if ((count + 1) * 2 > table.length)
+				rehash();
+			int length = utf8Length(string);
+			if (size + 5 + length > data.length)
+				data = Arrays.copyOf(data, Math.max(data.length * 2, size + 5 + length));
+			starts[count] = size;
+			for (int value = length; ; value >>>= 7) {
+				if ((value & ~0x7f) == 0) {
+					data[size++] = (byte) value;
+					break;
+				}
+				data[size++] = (byte) ((value & 0x7f) | 0x80);
+			}
+			putUtf8(string);
+			return count++;
+		}
+		private void rehash() {
+			table = new int[table.length * 2];
+			for (int ii=0; ii <= count; ii++) {
+				int slot = strings[ii].hashCode() & (table.length - 1);
+				while (table[slot] != 0)
+					slot = (slot + 1) & (table.length - 1);
+				table[slot] = ii + 1;
+			}
+		}
+		private static int utf8Length(String string) {
+			int ret = 0;
+			for (int ii=0; ii < string.length(); ii++) {
+				char c = string.charAt(ii);
+				if (c < 0x80) {
+					ret++;
+				} else if (c < 0x800) {
+					ret += 2;
+				} else if (Character.isHighSurrogate(c) && ii+1 < string.length() && Character.isLowSurrogate(string.charAt(ii+1))) {
+					ret += 4;
+					ii++;
+				} else {
+					ret += 3;
+				}
+			}
+			return ret;
+		}
+		// UTF-8, except that an unpaired surrogate is written as it stands rather than replaced
+		private void putUtf8(String string) {
+			byte[] out = data;
+			int at = size;
+			for (int ii=0; ii < string.length(); ii++) {
+				char c = string.charAt(ii);
+				if (c < 0x80) {
+					out[at++] = (byte) c;
+				} else if (c < 0x800) {
+					out[at++] = (byte) (0xc0 | (c >> 6));
+					out[at++] = (byte) (0x80 | (c & 0x3f));
+				} else if (Character.isHighSurrogate(c) && ii+1 < string.length() && Character.isLowSurrogate(string.charAt(ii+1))) {
+					int cp = Character.toCodePoint(c, string.charAt(++ii));
+					out[at++] = (byte) (0xf0 | (cp >> 18));
+					out[at++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+					out[at++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+					out[at++] = (byte) (0x80 | (cp & 0x3f));
+				} else {
+					out[at++] = (byte) (0xe0 | (c >> 12));
+					out[at++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+					out[at++] = (byte) (0x80 | (c & 0x3f));
+				}
+			}
+			size = at;
+		}
+	}
+}
@@ -1,11 +1,38 @@
 package org.ferrilidium.args;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.ferrilidium.args.ParseLimits.Limit;
 
 /*****************************************************************
  * Copyright [2017] [Cornelius Perkins]
@@ -30,6 +57,100 @@ import java.util.regex.Pattern;
  */
 
 public class FeSimpleArgs {
+	private ArgFiles argFiles;
+	private ParseListener listener;
+	private NamePool names;
+	private NameIndex abbreviations;
+	private ParseLimits limits;
+	private int parallelThreshold = -1;        // the default (see setParallelThreshold)
+
+	/**
+	 * Turns on expansion of @path tokens in parse(String[]), using (and caching files in) the given ArgFiles; null turns it off,
+	 * which is the default.  @see ArgFiles
+	 * @param argFiles
+	 * @return this
+	 */
+	public FeSimpleArgs setArgFiles (ArgFiles argFiles) {
+		this.argFiles = argFiles;
+		return this;
+	}
+	/**
+	 * Has every parse that produces a whole Result (parse, ParseContext.parseInto and parseAll, but not parseLazily or the
+	 * ArgVisitor ones) reported to the listener; null, the default, turns it off.  The listener is called on the parsing
+	 * thread, so one that is shared (by parseAll, for one) has to be thread safe.  @see ParseMetrics
+	 * @param listener
+	 * @return this
+	 */
+	public FeSimpleArgs setListener (ParseListener listener) {
+		this.listener = listener;
+		return this;
+	}
+	/**
+	 * Has the long option names in every Result this parser produces come from the pool, so that Results kept for a long time
+	 * share one String per name rather than each holding its own; null, the default, turns it off.  @see NamePool
+	 * @param names
+	 * @return this
+	 */
+	public FeSimpleArgs setNamePool (NamePool names) {
+		this.names = names;
+		return this;
+	}
+	/**
+	 * Has a long option in the Results this parser produces (but not what an ArgVisitor is given) that is an abbreviation of
+	 * one of the names in the index stand for that name, as --verb does for --verbose; one that abbreviates more than one is
+	 * an IllegalArgumentException, and one that abbreviates none is left as it is.  Short flags and the empty name (of --=x)
+	 * aren't touched.  null, the default, turns it off.  @see NameIndex
+	 * @param abbreviations
+	 * @return this
+	 */
+	public FeSimpleArgs setAbbreviations (NameIndex abbreviations) {
+		this.abbreviations = abbreviations;
+		return this;
+	}
+	/**
+	 * Holds every parse (of any kind) to the given limits, throwing a ParseLimitException as soon as one is passed; null, the
+	 * default, turns them off.  (parseAll's IllegalArgumentException for a line has the ParseLimitException as its cause.)
+	 * @see ParseLimits
+	 * @param limits
+	 * @return this
+	 */
+	public FeSimpleArgs setLimits (ParseLimits limits) {
+		this.limits = limits;
+		return this;
+	}
+	ParseLimits limits () {
+		return limits;
+	}
+	/**
+	 * Has parse(String) and parse(CharSequence) (with or without an ArgVisitor) find the tokens of an input of at least the
+	 * given number of characters by tokenizing chunks of it in parallel, over the common ForkJoinPool, rather than in one
+	 * pass; what the parse finds is the same either way.  It only pays for inputs of a megabyte or so, and only with more
+	 * than one core: the default is 1 << 20 if the pool has more than one thread, and otherwise Integer.MAX_VALUE, which
+	 * turns it off.
+	 * @param chars
+	 * @return this
+	 */
+	public FeSimpleArgs setParallelThreshold (int chars) {
+		if (chars < 0)
+			throw new IllegalArgumentException ("The parallel threshold can't be negative (got " + chars + ")");
+		this.parallelThreshold = chars;
+		return this;
+	}
+	/*
+	 * The tokens of args: found in parallel if it is long enough, otherwise as it is scanned.  Whether the default threshold
+	 * is on depends on the pool, so it is only worked out for an input that long: asking any sooner would load the pool's
+	 * classes for every parse.  (Everything else to do with the parallel path is in ParallelTokens too, for the same reason.)
+	 */
+	private Tokens tokens (CharSequence args) {
+		int len = args.length();
+		int threshold = parallelThreshold;
+		if (threshold < 0)
+			threshold = (len < ParallelTokens.DEFAULT_THRESHOLD) ? Integer.MAX_VALUE : ParallelTokens.defaultThreshold();
+		if (len < threshold || len == 0)
+			return new CharTokens (args, 0, len);
+		return ParallelTokens.of(args, threshold, limits);
+	}
+
 	/**
 	 * Parses a stream of tokens into a Result containing arguments and parameters. Arguments can have a value (name=value) or flags (no value).
 	 *     Argument names can be short or long (-abc is three short flags, while --abc is one long one)
@@ -40,8 +161,7 @@ public class FeSimpleArgs {
 	 * @return
 	 */
 	public Result parse (String args) {
-		String[] tokens = tokenize(args);
-		return parse(tokens);
+		return parse (tokens (args), args.length());
 	}
 	/**
 	 * Parses a stream of tokens into a Result containing arguments and parameters. Arguments can have a value (name=value) or flags (no value).
@@ -49,65 +169,648 @@ public class FeSimpleArgs {
 	 *     Whitespace is permitted (around the equals sign or within a value)
 	 *     Note: if the same argument name appears more than once, only the last will be kept.  That is, args [-a -a=foo -a=bar] is the same as just [-a=bar].
 	 *     Order is not preserved among arguments (which are held in a Map), but are preserved in parameters (held in a List).  @see Result
+	 *     If @path tokens are turned on (see setArgFiles), each one is replaced by the tokens in that file.
 	 * @param tokens
 	 * @return
 	 */
 	public Result parse (String[] tokens) {
-		Result ret = new Result();
-		for (int ii=0; ii < tokens.length; ii++) {
-			String token = tokens[ii].trim();
-			if ("--".equals(token)) { // separator.  Everything following this is a parameter
-				for (int jj=ii+1; jj < tokens.length; jj++) {
-					ret.params.add(tokens[jj]);
-				}
-				ii=tokens.length;
-				break;
+		return parse (expand (new ArrayTokens (tokens, 0)), inputLength (tokens));
+	}
+	/**
+	 * Parses the given characters the same way as parse(String), without copying them.  The names, values and parameters in the
+	 * Result are views of the characters, and only become Strings when they are read through Result.args or Result.params, or
+	 * when toString() is called on what Result.get() and Result.param() return.
+	 * Note: the Result is only good for as long as the characters are left unchanged.
+	 * @param args
+	 * @return
+	 */
+	public Result parse (CharSequence args) {
+		return parse (tokens (args), args.length());
+	}
+	/**
+	 * Parses len characters of buf, starting at off, the same way as parse(CharSequence): the Result holds views into buf, so
+	 * it is only good for as long as that part of buf is left unchanged.
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public Result parse (char[] buf, int off, int len) {
+		if (off < 0 || len < 0 || off > buf.length - len)
+			throw new IndexOutOfBoundsException ("off=" + off + ", len=" + len + ", buf.length=" + buf.length);
+		return parse (new CharTokens (CharBuffer.wrap(buf), off, len), len);
+	}
+	/**
+	 * Parses an argv as the bytes between argv's position and limit, in UTF-8, with a NUL after each argument (as in
+	 * /proc/[pid]/cmdline).  This is the same as parse(ByteBuffer, byte) with a delimiter of 0.
+	 * @param argv
+	 * @return
+	 */
+	public Result parse (ByteBuffer argv) {
+		return parse (argv, (byte) 0);
+	}
+	/**
+	 * Parses the bytes between argv's position and limit (which are left as they are) as UTF-8 tokens, each followed by the
+	 * delimiter (which can be left off the last one), the same way as parse(String[]) would parse the decoded tokens (but
+	 * without any @path expansion).  The bytes aren't decoded up front: as long as a token is ASCII the Result holds views of
+	 * its bytes, which are only decoded into Strings when they are read, as for parse(CharSequence).  So the Result is only good
+	 * for as long as the bytes are left unchanged.  A token with any other characters in it is decoded as it is reached.
+	 * Any kind of ByteBuffer will do, including direct and memory-mapped ones.
+	 * @param argv
+	 * @param delimiter
+	 * @return
+	 */
+	public Result parse (ByteBuffer argv, byte delimiter) {
+		return parse (new ByteTokens (argv, argv.position(), argv.limit(), delimiter), argv.remaining());
+	}
+	/**
+	 * Parses len bytes of buf, starting at off, the same way as parse(ByteBuffer, byte).
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @param delimiter
+	 * @return
+	 */
+	public Result parse (byte[] buf, int off, int len, byte delimiter) {
+		if (off < 0 || len < 0 || off > buf.length - len)
+			throw new IndexOutOfBoundsException ("off=" + off + ", len=" + len + ", buf.length=" + buf.length);
+		return parse (new ByteTokens (ByteBuffer.wrap(buf), off, off + len, delimiter), len);
+	}
+
+	/**
+	 * Parses args the same way as parse(String), but only as far as each question asked of the Result needs: contains() stops
+	 * as soon as the argument turns up, and param(idx) once there are idx+1 parameters.  get() has to go to the end, since a
+	 * later occurrence of the argument would replace the value, and so does anything that reads Result.args or Result.params
+	 * (or paramCount() or toString()).  Each question carries on from where the last one stopped.
+	 * The answers are the same as for parse(String), except that a problem with the input (see parse) is only thrown once the
+	 * scan gets to it, by whichever question gets there first (and by every question after that).
+	 * A lazy Result can't be shared between threads until it has been scanned to the end; unmodifiable() does that.
+	 * @param args
+	 * @return
+	 */
+	public Result parseLazily (String args) {
+		return parseLazily (new CharTokens (args, 0, args.length()));
+	}
+	/**
+	 * The same as parseLazily(String), keeping views of args as parse(CharSequence) does.
+	 * @param args
+	 * @return
+	 */
+	public Result parseLazily (CharSequence args) {
+		return parseLazily (new CharTokens (args, 0, args.length()));
+	}
+	/**
+	 * The same as parseLazily(String), for tokens as parse(String[]) takes them.  @path tokens (if turned on) are expanded as
+	 * the scan reaches them.
+	 * @param tokens
+	 * @return
+	 */
+	public Result parseLazily (String[] tokens) {
+		return parseLazily (expand (new ArrayTokens (tokens, 0)));
+	}
+	Result parseLazily (Tokens tokens) {
+		ResultBuilder builder = new ResultBuilder();
+		builder.names = names;
+		builder.abbreviations = abbreviations;
+		Result ret = new Result (builder.args, builder.params);
+		ret.lazy = new LazyScan (tokens, builder, limits);
+		return ret;
+	}
 
-			} else if (token.startsWith("--")) { // long argument name.
-				// strip the leading --, grab the argument name (watch for equals sign), and collect all the parts of the value
-				ParseState nv = getNextToken (tokens, ii);
-				ii = nv.after-1;
-				String name = nv.name.substring(2);
-				ret.args.put(name, nv.value);
+	/**
+	 * Parses args the same way as parse(String), but rather than collecting a Result passes each short flag, long option,
+	 * parameter and separator to the visitor, in the order they appear.  Nothing is collected, so a visitor that fills in
+	 * its own objects (or only looks for a few names) saves building the Map and List.  What the visitor is given is only good
+	 * for the duration of the call (see ArgVisitor); ParseContext.parse(CharSequence, ArgVisitor) does the same without
+	 * allocating anything.
+	 * @param args
+	 * @param visitor
+	 */
+	public void parse (CharSequence args, ArgVisitor visitor) {
+		Scanner scanner = new Scanner (visitor).limit(limits);
+		scanner.checkInputLength(args.length());
+		scanner.run(tokens (args));
+	}
+	/**
+	 * Parses tokens the same way as parse(String[]) (including @path expansion, if it is turned on), passing what it finds to
+	 * the visitor as parse(CharSequence, ArgVisitor) does.
+	 * @param tokens
+	 * @param visitor
+	 */
+	public void parse (String[] tokens, ArgVisitor visitor) {
+		Scanner scanner = new Scanner (visitor).limit(limits);
+		if (limits != null)
+			scanner.checkInputLength(inputLength (tokens));
+		scanner.run(expand (new ArrayTokens (tokens, 0)));
+	}
 
-			} else if (token.startsWith("-")) { // short argument name(or names).
-				// strip the leading -, grab the argument name (watch for equals sign), break it into parts, and collect all the parts of the value
-				ParseState nv = getNextToken (tokens, ii);
-				ii = nv.after-1;
-				String name = nv.name.substring(1);
-				for (int ff=0; ff < name.length()-1; ff++) {
-					ret.args.put("" + name.charAt(ff), null);
-				}
-				ret.args.put("" + name.charAt(name.length()-1), nv.value);
+	/**
+	 * Returns an ArgStream, which parses text fed to it a piece at a time the same way as parse(String), passing each argument
+	 * and parameter to the visitor as soon as it is complete.
+	 * @param visitor
+	 * @return
+	 */
+	public ArgStream stream (ArgVisitor visitor) {
+		return new ArgStream (visitor, limits);
+	}
+	/**
+	 * Parses everything that can be read from in, the same way as parse(String), passing each argument and parameter to the
+	 * visitor as soon as it is complete.  Only the current argument is held in memory, so there is no limit on how much can be read.
+	 * @param in
+	 * @param visitor
+	 * @throws IOException
+	 */
+	public void parse (Reader in, ArgVisitor visitor) throws IOException {
+		ArgStream stream = stream (visitor);
+		char[] buf = new char[ArgStream.CHUNK_SIZE];
+		for (int len; (len = in.read(buf)) >= 0; )
+			stream.feed(buf, 0, len);
+		stream.finish();
+	}
+	/**
+	 * Parses everything that can be read from in (decoded with the given charset), the same way as parse(String), passing
+	 * each argument and parameter to the visitor as soon as it is complete.
+	 * @param in
+	 * @param charset
+	 * @param visitor
+	 * @throws IOException
+	 */
+	public void parse (ReadableByteChannel in, Charset charset, ArgVisitor visitor) throws IOException {
+		ArgStream stream = stream (visitor);
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer bytes = ByteBuffer.allocate(ArgStream.CHUNK_SIZE);
+		CharBuffer chars = CharBuffer.allocate(ArgStream.CHUNK_SIZE);
+		boolean eof = false;
+		while (! eof) {
+			eof = in.read(bytes) < 0;
+			bytes.flip();
+			CoderResult cr;
+			do {
+				cr = decoder.decode(bytes, chars, eof);
+				stream.feed(chars.array(), 0, chars.position());
+				chars.clear();
+			} while (cr.isOverflow());
+			bytes.compact();
+		}
+		CoderResult cr;
+		do {
+			cr = decoder.flush(chars);
+			stream.feed(chars.array(), 0, chars.position());
+			chars.clear();
+		} while (cr.isOverflow());
+		stream.finish();
+	}
 
-			} else { // this is probably an error: from the requirements, we shouldn't be in this position if the arguments are valid.  Treating as parameter for now
-				ret.params.add(token);
+	/**
+	 * Parses each of the lines, the same way as parse(String), spreading the work over the common ForkJoinPool.  The Results
+	 * are in the same order as the lines.
+	 * @param lines
+	 * @return
+	 */
+	public List<Result> parseAll (List<String> lines) {
+		Result[] ret = new Result[lines.size()];
+		parseAll (lines, (result, idx) -> ret[idx] = result);
+		return Arrays.asList(ret);
+	}
+	/**
+	 * Parses each of the lines, the same way as parse(String), spreading the work over the common ForkJoinPool, and passes each
+	 * Result to the consumer along with the index of its line, rather than collecting them.  The consumer is called from the
+	 * pool's threads, as each Result is ready, so it has to be thread safe; Results don't arrive in any particular order.
+	 * If a line can't be parsed, the IllegalArgumentException (with the line's index added to its message) is rethrown here
+	 * once the lines already under way are done.
+	 * @param lines
+	 * @param consumer
+	 */
+	public void parseAll (List<String> lines, ObjIntConsumer<? super Result> consumer) {
+		if (! (lines instanceof RandomAccess))
+			lines = new ArrayList<>(lines);
+		BatchTask.run(this, lines, consumer);
+	}
+	/**
+	 * Parses each of the lines, the same way as parse(String), with the stream made parallel.  The Results are in the same
+	 * order as the lines, as long as the stream is ordered.
+	 * @param lines
+	 * @return
+	 */
+	public List<Result> parseAll (Stream<String> lines) {
+		return parallel (lines).collect(Collectors.toList());
+	}
+	/**
+	 * Parses each of the lines, the same way as parse(String), with the stream made parallel, and passes each Result to the
+	 * consumer rather than collecting them.  The consumer gets them one at a time, in the same order as the lines (as long
+	 * as the stream is ordered).
+	 * @param lines
+	 * @param consumer
+	 */
+	public void parseAll (Stream<String> lines, Consumer<? super Result> consumer) {
+		parallel (lines).forEachOrdered(consumer);
+	}
+	// each thread parses with a ParseContext of its own
+	private Stream<Result> parallel (Stream<String> lines) {
+		ThreadLocal<ParseContext> contexts = ThreadLocal.withInitial(() -> new ParseContext (this));
+		return lines.parallel().map(line -> contexts.get().parse(line));
+	}
+
+	/*
+	 * Parses lines[from, to) for parseAll, splitting the range in half until it is small enough to parse here.  Each piece that
+	 * is parsed has a ParseContext of its own.
+	 * Everything to do with the pool is in here, so that loading FeSimpleArgs (to parse one command line) doesn't load it.
+	 */
+	private static class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		static final int MIN_PER_TASK = 64;
+		private final FeSimpleArgs parser;
+		private final List<String> lines;
+		private final int from;
+		private final int to;
+		private final int perTask;
+		private final ObjIntConsumer<? super Result> consumer;
+		BatchTask(FeSimpleArgs parser, List<String> lines, int from, int to, int perTask, ObjIntConsumer<? super Result> consumer) {
+			this.parser = parser;
+			this.lines = lines;
+			this.from = from;
+			this.to = to;
+			this.perTask = perTask;
+			this.consumer = consumer;
+		}
+		static void run(FeSimpleArgs parser, List<String> lines, ObjIntConsumer<? super Result> consumer) {
+			int perTask = Math.max(MIN_PER_TASK, lines.size() / (ForkJoinPool.getCommonPoolParallelism() * 8));
+			try {
+				ForkJoinPool.commonPool().invoke(new BatchTask (parser, lines, 0, lines.size(), perTask, consumer));
+			} catch (IllegalArgumentException e) {
+				// the pool may have wrapped the task's exception in a copy of itself; pass on the original
+				for (Throwable cause = e; cause != null; cause = cause.getCause())
+					if (cause instanceof BadLine)
+						throw (BadLine) cause;
+				throw e;
+			}
+		}
+		@Override
+		protected void compute() {
+			if (to - from > perTask) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BatchTask (parser, lines, from, mid, perTask, consumer),
+						new BatchTask (parser, lines, mid, to, perTask, consumer));
+				return;
+			}
+			ParseContext context = new ParseContext (parser);
+			for (int ii=from; ii < to; ii++) {
+				Result result;
+				try {
+					result = context.parse(lines.get(ii));
+				} catch (IllegalArgumentException e) {
+					throw new BadLine ("Line " + ii + ": " + e.getMessage(), e);
+				}
+				consumer.accept(result, ii);
+			}
+		}
+		private static class BadLine extends IllegalArgumentException {
+			private static final long serialVersionUID = 1L;
+			BadLine(String message, Throwable cause) {
+				super(message, cause);
 			}
 		}
+	}
+
+	Result parse (Tokens tokens, int inputLength) {
+		ResultBuilder builder = new ResultBuilder();
+		scan (new Scanner (builder), builder, tokens, inputLength);
+		return new Result (builder.args, builder.params);
+	}
+	/* Runs scanner (which passes what it finds to builder) over tokens, reporting to the listener if there is one. */
+	void scan (Scanner scanner, ResultBuilder builder, Tokens tokens, int inputLength) {
+		builder.names = names;
+		builder.abbreviations = abbreviations;
+		scanner.limit(limits).checkInputLength(inputLength);
+		ParseListener listener = this.listener;
+		if (listener == null) {
+			scanner.run(tokens);
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			scanner.run(tokens);
+		} catch (RuntimeException e) {
+			listener.failed(inputLength, System.nanoTime() - start, e);
+			throw e;
+		}
+		long nanos = System.nanoTime() - start;
+		listener.parsed(inputLength, scanner.tokenCount, builder.args.size(), builder.params.size(), scanner.merges, nanos);
+	}
+	/* The number of characters in tokens, for the listener and the limits (which are the only things that need it). */
+	int inputLength (String[] tokens) {
+		if (listener == null && limits == null)
+			return 0;
+		int ret = 0;
+		for (String token: tokens)
+			ret += token.length();
 		return ret;
+	}
+	/* The tokens of a parse(String[]), with any @path tokens expanded. */
+	Tokens expand (Tokens tokens) {
+		return (argFiles == null) ? tokens : argFiles.expand(tokens);
+	}
+
+	/**
+	 * Receives the arguments and parameters found by a parse, in the order they appear.  The name, value and parameter
+	 * CharSequences are only good for the duration of the call; use toString() to keep them.
+	 */
+	public interface ArgVisitor {
+		/** A single-character argument, such as each of a, b and c in -abc=value (where only c has the value). */
+		default void onShortFlag (char name, CharSequence value) {}
+		/** A long argument, such as --name=value; value is null if there isn't one. */
+		default void onLongOption (CharSequence name, CharSequence value) {}
+		/** A parameter, either a non-option-like token or anything after the separator. */
+		default void onParam (CharSequence param) {}
+		/** The -- separator, after which everything is a parameter. */
+		default void onSeparator () {}
+	}
+
+	/**
+	 * Is told about each parse (see setListener), once it is done.
+	 */
+	public interface ParseListener {
+		/**
+		 * @param inputLength the number of characters parsed (for tokens, the total of their lengths, before any @path expansion)
+		 * @param tokens the number of tokens
+		 * @param args the number of arguments in the Result (each name only once)
+		 * @param params the number of parameters in the Result
+		 * @param merges the number of times a token was joined onto the argument before it (as in -a = "b c")
+		 * @param nanos how long the parse took
+		 */
+		void parsed (int inputLength, int tokens, int args, int params, int merges, long nanos);
+		/** A parse that threw e (which is thrown on once this returns). */
+		default void failed (int inputLength, long nanos, RuntimeException e) {}
+	}
+
+	/**
+	 * Parses text that arrives a piece at a time (see stream(ArgVisitor)).  Pieces can be split anywhere, including inside a
+	 * quoted value or between an argument name and its "= value"; the visitor gets each argument once it knows nothing that
+	 * follows can still be part of it, and the last one when finish() is called.
+	 * Only the current token and argument are held, with one exception: a quote that opens a token has to be matched before
+	 * anything after it can be passed on, so an unmatched quote holds the rest of the input until finish().
+	 */
+	public static class ArgStream {
+		static final int CHUNK_SIZE = 8192;
+		private static final int BETWEEN = 0;
+		private static final int WORD = 1;
+		private static final int QUOTED = 2;
+		private final Scanner scanner;
+		private final StringBuilder token = new StringBuilder();
+		private int state = BETWEEN;
+		private int fed;     // characters, for the input length limit
 
+		ArgStream(ArgVisitor visitor, ParseLimits limits) {
+			this.scanner = new Scanner (visitor).limit(limits);
+		}
+		public ArgStream feed (CharSequence chunk) {
+			for (int ii=0; ii < chunk.length(); ii++)
+				accept(chunk.charAt(ii));
+			return this;
+		}
+		public ArgStream feed (char[] buf, int off, int len) {
+			if (off < 0 || len < 0 || off > buf.length - len)
+				throw new IndexOutOfBoundsException ("off=" + off + ", len=" + len + ", buf.length=" + buf.length);
+			for (int ii=off; ii < off + len; ii++)
+				accept(buf[ii]);
+			return this;
+		}
+		/** Ends the input, passing on whatever is still held. */
+		public void finish () {
+			if (state == QUOTED) {
+				// never matched, so the quote is an ordinary character and what followed it (which has no quotes) is split as usual
+				String rest = token.toString();
+				token.setLength(0);
+				token.append('"');
+				state = WORD;
+				feed(rest);
+			}
+			if (state == WORD)
+				emit();
+			state = BETWEEN;
+			scanner.end();
+		}
+		// tokens are found the same way as CharTokens finds them
+		private void accept(char c) {
+			scanner.checkInputLength(++fed);
+			switch (state) {
+			case BETWEEN:
+				if (c == '"')
+					state = QUOTED;
+				else if (! CharTokens.isSpace(c)) {
+					token.append(c);
+					state = WORD;
+				}
+				break;
+			case WORD:
+				if (CharTokens.isSpace(c)) {
+					emit();
+					state = BETWEEN;
+				} else {
+					token.append(c);
+				}
+				break;
+			default:
+				if (c == '"') {
+					emit();
+					state = BETWEEN;
+				} else {
+					token.append(c);
+				}
+			}
+		}
+		// each token becomes a String of its own, so the Scanner can keep views of it for as long as it needs to
+		private void emit() {
+			String text = token.toString();
+			token.setLength(0);
+			scanner.token(text, 0, text.length());
+		}
 	}
 	
 	/**
 	 * Holds the results of parsing.  Arguments (which may take an optional value) are held in the map, and parameters are kept in the list.
+	 * A parsed Result holds views of the text it came from: get(), contains() and param() use them directly, while reading args and
+	 * params turns the views involved into Strings (once each).  The args map has no null key: putting one throws a
+	 * NullPointerException.
 	 * @author Cornelius Perkins (ccperkins at bitbucket and github)
 	 */
 	public static class Result {
 		public final Map<String, String> args;
 		public final List<String> params;
+		private final ArgMap argMap;        // what's behind args and params when they came from a parse (for the view methods)
+		private final ParamList paramList;
+		private final boolean unmodifiable;
+		private volatile Conversions conversions; // what the typed getters have converted, once one of them is used
+		private LazyScan lazy;                    // for parseLazily
 		public Result(Map<String, String> args, List<String> params) {
 			super();
 			if (args == null)
-				this.args = new HashMap<String,String>();
+				this.args = new ArgMap();
 			else
 				this.args = args;
 			if (params == null)
-				this.params = new ArrayList<String>();
+				this.params = new ParamList();
 			else
 				this.params = params;
+			this.argMap = (this.args instanceof ArgMap) ? (ArgMap) this.args : null;
+			this.paramList = (this.params instanceof ParamList) ? (ParamList) this.params : null;
+			this.unmodifiable = false;
 		}
 		public Result() {
-			this (null, null);
+			this (new ArgMap(), new ParamList());
+		}
+		private Result(Result result) {
+			this.args = Collections.unmodifiableMap(result.args);
+			this.params = Collections.unmodifiableList(result.params);
+			this.argMap = result.argMap;
+			this.paramList = result.paramList;
+			this.unmodifiable = true;
+		}
+		private Result(FrozenArgs args, FrozenParams params) {
+			this.args = args;
+			this.params = params;
+			this.argMap = null;
+			this.paramList = null;
+			this.unmodifiable = true;
+		}
+		/**
+		 * Returns a read-only view of this Result, in which args and params can't be changed.  As long as nothing changes the
+		 * original either, the view is immutable, and can be shared between threads.
+		 */
+		public Result unmodifiable() {
+			if (lazy != null)
+				lazy.finish();
+			return unmodifiable ? this : new Result (this);
+		}
+		/**
+		 * Returns an immutable copy of this Result packed for keeping: the arguments in one sorted array of names and values,
+		 * and the parameters in another, with names from NamePool.shared().  Every value is a String of its own, so the copy
+		 * doesn't keep the input, or anything the parse used, alive.  It can be shared between threads.  Freezing a frozen
+		 * Result returns it as it is.
+		 */
+		public Result freeze() {
+			return freeze (NamePool.shared());
+		}
+		/**
+		 * The same as freeze(), taking the names from the given pool.
+		 * @param names
+		 */
+		public Result freeze (NamePool names) {
+			if (args instanceof FrozenArgs && params instanceof FrozenParams)
+				return this;
+			if (lazy != null)
+				lazy.finish();
+			return new Result (FrozenArgs.of(args, names), FrozenParams.of(params));
+		}
+		/**
+		 * Removes all arguments and parameters, keeping the space they took so that refilling this Result (see
+		 * ParseContext.parseInto) doesn't need to allocate any.  Views returned by get() and param() before the call may
+		 * be reused for other text afterwards, so convert any that need to be kept with toString() first.
+		 */
+		public void clear() {
+			if (lazy != null) {
+				lazy.detach();
+				lazy = null;
+			}
+			args.clear();
+			params.clear();
+			conversions = null;
+		}
+		/** Returns true if the named argument was given, with or without a value. */
+		public boolean contains (CharSequence name) {
+			if (lazy != null)
+				return lazy.contains(name);
+			if (argMap != null)
+				return argMap.containsKey(name);
+			if (args instanceof FrozenArgs)
+				return ((FrozenArgs) args).find(name) >= 0;
+			return args.containsKey(name.toString());
+		}
+		/** Returns the value of the named argument, or null if it was given without one (or not given at all). */
+		public CharSequence get (CharSequence name) {
+			if (lazy != null)
+				lazy.finish();
+			if (argMap != null)
+				return argMap.view(name);
+			if (args instanceof FrozenArgs)
+				return ((FrozenArgs) args).view(name);
+			return args.get(name.toString());
+		}
+
+		/*
+		 * The typed getters.  Each returns defaultValue if the argument wasn't given, or was given without a value (apart from
+		 * getBoolean, for which a flag on its own is true), and throws an IllegalArgumentException if the value can't be
+		 * converted.  Each value is converted once, the first time it is asked for, and kept for later calls.
+		 */
+		public int getInt (CharSequence name, int defaultValue) {
+			CharSequence value = get(name);
+			return (value == null) ? defaultValue : (int) conversions().bits(name, Conversions.INT, value);
+		}
+		public long getLong (CharSequence name, long defaultValue) {
+			CharSequence value = get(name);
+			return (value == null) ? defaultValue : conversions().bits(name, Conversions.LONG, value);
+		}
+		public double getDouble (CharSequence name, double defaultValue) {
+			CharSequence value = get(name);
+			return (value == null) ? defaultValue : Double.longBitsToDouble(conversions().bits(name, Conversions.DOUBLE, value));
+		}
+		/** true, yes, on or 1 for true, and false, no, off or 0 for false (in any case). */
+		public boolean getBoolean (CharSequence name, boolean defaultValue) {
+			if (! contains(name))
+				return defaultValue;
+			CharSequence value = get(name);
+			return (value == null) || conversions().bits(name, Conversions.BOOLEAN, value) != 0;
+		}
+		/** A whole number with a unit (ns, us, ms, s, m, h or d), such as 30s, or an ISO-8601 duration such as PT1M30S. */
+		public Duration getDuration (CharSequence name, Duration defaultValue) {
+			CharSequence value = get(name);
+			return (value == null) ? defaultValue : conversions().duration(name, value);
+		}
+		/** A number of bytes, with an optional 1024-based unit (K, M, G or T, followed by nothing, B or iB, in any case), such as 10MB. */
+		public long getSize (CharSequence name, long defaultValue) {
+			CharSequence value = get(name);
+			return (value == null) ? defaultValue : conversions().bits(name, Conversions.SIZE, value);
+		}
+		/** The comma-separated parts of the value, trimmed, leaving out empty ones.  The List can't be modified. */
+		public List<String> getList (CharSequence name, List<String> defaultValue) {
+			return getList (name, ',', defaultValue);
+		}
+		/** The parts of the value between separators, trimmed, leaving out empty ones.  The List can't be modified. */
+		public List<String> getList (CharSequence name, char separator, List<String> defaultValue) {
+			CharSequence value = get(name);
+			return (value == null) ? defaultValue : conversions().list(name, separator, value);
+		}
+		private Conversions conversions() {
+			Conversions ret = conversions;
+			if (ret == null) {
+				synchronized (this) {
+					if ((ret = conversions) == null)
+						conversions = ret = new Conversions();
+				}
+			}
+			return ret;
+		}
+
+		/**
+		 * Returns a view that looks each name up in this Result, and if it wasn't given here, in each of the layers in turn
+		 * (such as the environment and then a properties file).  Nothing is copied; see Layered.
+		 */
+		public Layered layered (ConfigLayer... layers) {
+			return new Layered (this, layers.clone());
+		}
+
+		public int paramCount() {
+			return params.size();
+		}
+		/** Returns the parameter at the given position (counting from 0). */
+		public CharSequence param (int idx) {
+			if (lazy != null)
+				lazy.reach(idx);
+			if (paramList != null)
+				return paramList.view(idx);
+			return params.get(idx);
 		}
 		public String toString() {
 			StringBuilder sbParams = new StringBuilder();
@@ -130,9 +833,6 @@ public class FeSimpleArgs {
 	}
 
 
-	private final String regex = "\"([^\"]*)\"|(\\S+)";
-	private final Pattern pattern = Pattern.compile(regex);
-
 	/*
 	 * Separates a string into tokens. 
 	 * NOTE: would be private except for the needs of unit testing.
@@ -141,18 +841,10 @@ public class FeSimpleArgs {
 	 */
 	String[] tokenize (String args) {
 		List<String> accum = new ArrayList<>();
-		Matcher m = pattern.matcher(args);
-		while (m.find()) {
-			if (m.group(1) != null) {
-				accum.add(m.group(1));
-			} else {
-				accum.add(m.group(2));
-			}
-		}
-		String[] ret= new String[accum.size()];
-		for (int ii=0; ii < accum.size(); ii++)
-			ret[ii] = accum.get(ii);
-		return ret;
+		CharTokens tokens = new CharTokens (args, 0, args.length());
+		while (tokens.next())
+			accum.add(args.substring(tokens.start, tokens.end));
+		return accum.toArray(new String[accum.size()]);
 	}
 
 
@@ -162,42 +854,16 @@ public class FeSimpleArgs {
 	 * NOTE: would be private except for the needs of unit testing.
 	 */
 	ParseState getNextToken(String[] tokens, int idxFirstValue) {
+		Scanner scanner = new Scanner (null);
+		scanner.startOption(tokens[idxFirstValue], 0, tokens[idxFirstValue].length());
 		// Look ahead for next arg or end of tokens
-		StringBuilder sb = new StringBuilder();
-		int idxLastValue = idxFirstValue;
-		sb.append(tokens[idxLastValue++].trim());
-		/*
-		 * NOTES: after a refactor we're failing.   This loop is finding {-name} but breaking on {-name -aa}.
-		 */
-		while (! tokenComplete (sb, tokens, idxLastValue)) {
-			sb.append(" ");
-			sb.append(tokens[idxLastValue++]);
-		}
-
-		// our name or name=value pair is now in sb.  
-		String[] parts = sb.toString().split("[= ]");
-		// the first part is the name, and any non-empty parts after make up the value.
-		String name = parts[0].trim();
-		StringBuilder value = new StringBuilder();
-		for (int ii=1; ii < parts.length; ii++) {
-			if (parts[ii].trim().length() > 0) {
-				if (value.length() > 0)
-					value.append(" ");
-				value.append(parts[ii].trim());
-			}
-		}
-		ParseState nv;
-		if (value.length() > 0) {
-			String val = value.toString();
-			// if there are quotes, strip them
-			if (val.indexOf('"') >= 0) {
-				val = val.substring(val.indexOf('"')+1, val.lastIndexOf('"'));
-			}
-			nv = new ParseState (name, val, idxLastValue);
+		int idxLastValue = idxFirstValue + 1;
+		while (idxLastValue < tokens.length && scanner.continues(tokens[idxLastValue], 0, tokens[idxLastValue].length())) {
+			scanner.extendOption(tokens[idxLastValue], 0, tokens[idxLastValue].length());
+			idxLastValue++;
 		}
-		else
-			nv = new ParseState (name, null, idxLastValue);
-		return nv;
+		CharSequence value = scanner.optionValue();
+		return new ParseState (scanner.name(0), (value == null) ? null : value.toString(), idxLastValue);
 	}
 
 	/* Returns true if the given token is "complete", which either means we have name=value or just name and there's no =value.
@@ -208,20 +874,10 @@ public class FeSimpleArgs {
 		// If there are no more, we're done
 		if (idx >= tokens.length)
 			return true;
-		// If we have name=value, we're done (but remember that value may have more than one part)
-		if (token.indexOf("=") > 0) {
-			String[] parts = token.toString().split("=");
-			if (parts.length == 2) {
-				if (parts[1].indexOf('"') >= 0) { // there's a quote.  Are there two?
-					return (parts[1].lastIndexOf('"') > parts[1].indexOf('"'));
-				} else { 
-					return (parts[1].trim().length() > 0); // we either have name=value or name=
-				}
-			} else // name= but no value
-				return false;
-		}
-		// So now we know we just have name.  if next begins with = we continue (not complete), otherwise we are.
-		return (! tokens[idx].trim().startsWith("="));
+		Continuation state = new Continuation();
+		for (int ii=0; ii < token.length(); ii++)
+			state.append(token.charAt(ii));
+		return state.complete(startsWithEquals(tokens[idx], 0, tokens[idx].length()));
 	}
 
 	/*
@@ -246,5 +902,1622 @@ public class FeSimpleArgs {
 				return name + "={" + value + "}(" + after + ")";
 		}
 	}
+
+	/*
+	 * A cursor over a sequence of tokens.  Each call to next() exposes the following token as the range [start, end) of text;
+	 * nothing is copied, so a token is only valid until the next call.
+	 */
+	static abstract class Tokens {
+		CharSequence text;
+		int start;
+		int end;
+		abstract boolean next();
+	}
+
+	/*
+	 * Tokens taken as-is from an array (the parse(String[]) case).
+	 */
+	static class ArrayTokens extends Tokens {
+		private String[] tokens;
+		private int idx;
+		ArrayTokens(String[] tokens, int idx) {
+			reset(tokens, idx);
+		}
+		ArrayTokens reset(String[] tokens, int idx) {
+			this.tokens = tokens;
+			this.idx = idx;
+			this.text = null;
+			return this;
+		}
+		@Override
+		boolean next() {
+			if (idx >= tokens.length)
+				return false;
+			String token = tokens[idx++];
+			text = token;
+			start = 0;
+			end = token.length();
+			return true;
+		}
+	}
+
+	/*
+	 * Tokens separated by a delimiter byte (the parse(ByteBuffer) case).  Each ASCII token is exposed as part of one AsciiBytes
+	 * over the whole buffer, so nothing is decoded or copied; any other token is decoded from UTF-8 into a String of its own.
+	 * A delimiter at the very end doesn't start another (empty) token.
+	 */
+	static class ByteTokens extends Tokens {
+		private final ByteBuffer bytes;
+		private final AsciiBytes ascii;
+		private final int limit;
+		private final byte delimiter;
+		private int pos;
+		ByteTokens(ByteBuffer bytes, int from, int to, byte delimiter) {
+			this.bytes = bytes;
+			this.ascii = new AsciiBytes (bytes);
+			this.pos = from;
+			this.limit = to;
+			this.delimiter = delimiter;
+		}
+		@Override
+		boolean next() {
+			if (pos >= limit)
+				return false;
+			int ii = pos;
+			boolean isAscii = true;
+			for (byte b; ii < limit && (b = bytes.get(ii)) != delimiter; ii++)
+				if (b < 0)
+					isAscii = false;
+			if (isAscii) {
+				text = ascii;
+				start = pos;
+				end = ii;
+			} else {
+				String token = decode(pos, ii);
+				text = token;
+				start = 0;
+				end = token.length();
+			}
+			pos = ii + 1;
+			return true;
+		}
+		private String decode(int from, int to) {
+			if (bytes.hasArray())
+				return new String (bytes.array(), bytes.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+			ByteBuffer part = bytes.duplicate();
+			part.limit(to);
+			part.position(from);
+			return StandardCharsets.UTF_8.decode(part).toString();
+		}
+	}
+
+	/*
+	 * The bytes of a buffer as chars, one each, for the ASCII parts of it (where that is the same as decoding them).
+	 */
+	static final class AsciiBytes implements CharSequence {
+		private final ByteBuffer bytes;
+		AsciiBytes(ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+		@Override
+		public int length() {
+			return bytes.limit();
+		}
+		@Override
+		public char charAt(int index) {
+			return (char) (bytes.get(index) & 0xff);
+		}
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return slice(this, start, end);
+		}
+		String substring(int start, int end) {
+			if (bytes.hasArray())
+				return new String (bytes.array(), bytes.arrayOffset() + start, end - start, StandardCharsets.ISO_8859_1);
+			char[] chars = new char[end - start];
+			for (int ii=start; ii < end; ii++)
+				chars[ii - start] = (char) (bytes.get(ii) & 0xff);
+			return new String (chars);
+		}
+		@Override
+		public String toString() {
+			return substring(0, bytes.limit());
+		}
+	}
+
+	/*
+	 * Tokens found by scanning a character sequence (the parse(String) case).  Tokens are separated by whitespace, except that
+	 * a double quote with a matching closing quote yields everything between the two as a single token.  A quote with no match
+	 * is just another character.
+	 * This makes a single pass over the characters: once a search for a closing quote fails there are no quotes left to search for.
+	 */
+	static class CharTokens extends Tokens {
+		private int limit;
+		private int pos;
+		CharTokens(CharSequence text, int off, int len) {
+			reset(text, off, len);
+		}
+		CharTokens reset(CharSequence text, int off, int len) {
+			this.text = text;
+			this.pos = off;
+			this.limit = off + len;
+			return this;
+		}
+		@Override
+		boolean next() {
+			CharSequence chars = text;
+			int ii = pos;
+			while (ii < limit && isSpace(chars.charAt(ii)))
+				ii++;
+			if (ii >= limit) {
+				pos = limit;
+				return false;
+			}
+			if (chars.charAt(ii) == '"') {
+				for (int close = ii+1; close < limit; close++) {
+					if (chars.charAt(close) == '"') {
+						start = ii+1;
+						end = close;
+						pos = close+1;
+						return true;
+					}
+				}
+			}
+			start = ii;
+			while (ii < limit && ! isSpace(chars.charAt(ii)))
+				ii++;
+			end = ii;
+			pos = ii;
+			return true;
+		}
+		/* Where the last token began (at its opening quote, if it had one), and where the next search for one starts. */
+		int begin() {
+			return (pos != end) ? start - 1 : start;
+		}
+		int pos() {
+			return pos;
+		}
+		// the same characters as \s in a regular expression
+		static boolean isSpace(char c) {
+			return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+		}
+	}
+
+	/*
+	 * The tokens of one large text, the same as CharTokens finds, found by tokenizing chunks of it in parallel (for parse
+	 * past the parallel threshold; see setParallelThreshold).  Each chunk but the first starts at a whitespace character, so
+	 * unless it is inside a quoted token, a chunk starts between tokens.  Whether it is inside one depends on everything
+	 * before it, so each chunk is tokenized both ways: from its start, and from just after its first quote (where a quoted
+	 * token coming in from before it would close); the second is usually back in step with the first within a token or two,
+	 * and shares the rest of its tokens from there.  Either way, a token that opens with a quote that doesn't close in the
+	 * chunk stops it there.  Stitching the chunks together in order then only has to carry one thing from each to the next:
+	 * the opening quote still waiting for its partner, if there is one.  One that never finds a partner is an ordinary
+	 * character, and since there are no quotes after it, everything from there on is split at whitespace.
+	 * Everything to do with the pool is in here, so that loading FeSimpleArgs doesn't load it.
+	 */
+	static final class ParallelTokens extends Tokens {
+		static final int DEFAULT_THRESHOLD = 1 << 20;
+		private final int[] spans;    // the start and end of each token
+		private final int count;
+		private int next;
+
+		ParallelTokens(CharSequence text, int chunkSize) {
+			this.text = text;
+			int len = text.length();
+			Ints bounds = new Ints();
+			for (int at=0; at < len; ) {
+				int to = (int) Math.min(len, (long) at + Math.max(chunkSize, 1));
+				while (to < len && ! CharTokens.isSpace(text.charAt(to)))
+					to++;
+				bounds.add(at, to);
+				at = to;
+			}
+			Chunk[] chunks = new Chunk[bounds.size / 2];
+			for (int ii=0; ii < chunks.length; ii++)
+				chunks[ii] = new Chunk (bounds.items[ii*2], bounds.items[ii*2 + 1]);
+			if (chunks.length == 1)
+				chunks[0].tokenize(text);
+			else if (chunks.length > 1)
+				ForkJoinPool.commonPool().invoke(new ChunkTask (text, chunks, 0, chunks.length));
+
+			Ints ret = new Ints();
+			int open = -1;          // an opening quote that hasn't closed yet
+			int openChunk = -1;
+			for (int ii=0; ii < chunks.length; ii++) {
+				Chunk chunk = chunks[ii];
+				if (open < 0) {
+					ret.addAll(chunk.fromStart, 0);
+					open = chunk.fromStartOpen;
+				} else if (chunk.firstQuote >= 0) {
+					ret.add(open+1, chunk.firstQuote);
+					ret.addAll(chunk.afterQuote, 0);
+					if (chunk.joined >= 0) {
+						ret.addAll(chunk.fromStart, chunk.joined * 2);
+						open = chunk.fromStartOpen;
+					} else {
+						open = chunk.afterQuoteOpen;
+					}
+				} else {
+					continue;       // inside the quoted token all the way through
+				}
+				openChunk = ii;
+			}
+			if (open >= 0) {
+				// no partner: the quote starts an ordinary word, and none of the tokens after it can have quotes
+				split(text, open, chunks[openChunk].to, ret);
+				for (int ii=openChunk+1; ii < chunks.length; ii++)
+					ret.addAll(chunks[ii].fromStart, 0);
+			}
+			this.spans = ret.items;
+			this.count = ret.size / 2;
+		}
+
+		/* The threshold to use when none has been set: off unless the pool has more than one thread to share the chunks out. */
+		static int defaultThreshold() {
+			return (ForkJoinPool.getCommonPoolParallelism() > 1) ? DEFAULT_THRESHOLD : Integer.MAX_VALUE;
+		}
+		/*
+		 * The tokens of a text past the threshold, in chunks of at least a quarter of it, and enough of them to keep each of the
+		 * pool's threads busy.  Nothing is scanned until they have all been found, so the input length limit is checked first.
+		 */
+		static Tokens of(CharSequence text, int threshold, ParseLimits limits) {
+			int len = text.length();
+			if (limits != null && len > limits.maxInputLength())
+				throw new ParseLimitException (Limit.INPUT_LENGTH, limits.maxInputLength(), null);
+			return new ParallelTokens (text, Math.max(threshold / 4, len / (ForkJoinPool.getCommonPoolParallelism() * 4)));
+		}
+
+		@Override
+		boolean next() {
+			if (next == count)
+				return false;
+			start = spans[next*2];
+			end = spans[next*2 + 1];
+			next++;
+			return true;
+		}
+
+		/* Adds the whitespace-separated words of text[from, to) to spans. */
+		static void split(CharSequence text, int from, int to, Ints spans) {
+			for (int ii=from; ii < to; ) {
+				while (ii < to && CharTokens.isSpace(text.charAt(ii)))
+					ii++;
+				int start = ii;
+				while (ii < to && ! CharTokens.isSpace(text.charAt(ii)))
+					ii++;
+				if (ii > start)
+					spans.add(start, ii);
+			}
+		}
+
+		/* A part of the text, tokenized both ways. */
+		static final class Chunk {
+			final int from;
+			final int to;
+			int firstQuote = -1;
+			final Ints fromStart = new Ints();     // between tokens at from
+			final Ints begins = new Ints();        // where each of those starts (at its quote, if it has one)
+			int fromStartOpen;
+			final Ints afterQuote = new Ints();    // inside a quoted token at from, which closes at firstQuote
+			int afterQuoteOpen = -1;
+			int joined = -1;                       // the token of fromStart that afterQuote goes on with, if it does
+			Chunk(int from, int to) {
+				this.from = from;
+				this.to = to;
+			}
+			void tokenize(CharSequence text) {
+				for (int ii=from; ii < to && firstQuote < 0; ii++) {
+					if (text.charAt(ii) == '"')
+						firstQuote = ii;
+				}
+				fromStartOpen = tokenize(text, from, fromStart, begins, null);
+				if (firstQuote >= 0)
+					afterQuoteOpen = tokenize(text, firstQuote+1, afterQuote, null, begins);
+			}
+			/*
+			 * Adds the tokens from ii on as CharTokens finds them (and where each begins, to begins, unless it is null), up to an
+			 * opening quote with no partner before to, which is returned (-1 if there isn't one).  With join, stops at the first
+			 * token that begins where one of those does, setting joined.
+			 */
+			private int tokenize(CharSequence text, int ii, Ints spans, Ints begins, Ints join) {
+				int jj = 0;
+				while (true) {
+					while (ii < to && CharTokens.isSpace(text.charAt(ii)))
+						ii++;
+					if (ii >= to)
+						return -1;
+					if (join != null) {
+						while (jj < join.size && join.items[jj] < ii)
+							jj++;
+						if (jj < join.size && join.items[jj] == ii) {
+							joined = jj;
+							return -1;
+						}
+					}
+					if (begins != null)
+						begins.add(ii);
+					if (text.charAt(ii) == '"') {
+						int close = ii+1;
+						while (close < to && text.charAt(close) != '"')
+							close++;
+						if (close == to)
+							return ii;
+						spans.add(ii+1, close);
+						ii = close+1;
+						continue;
+					}
+					int start = ii;
+					while (ii < to && ! CharTokens.isSpace(text.charAt(ii)))
+						ii++;
+					spans.add(start, ii);
+				}
+			}
+		}
+
+		private static final class ChunkTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private final CharSequence text;
+			private final Chunk[] chunks;
+			private final int from;
+			private final int to;
+			ChunkTask(CharSequence text, Chunk[] chunks, int from, int to) {
+				this.text = text;
+				this.chunks = chunks;
+				this.from = from;
+				this.to = to;
+			}
+			@Override
+			protected void compute() {
+				if (to - from == 1) {
+					chunks[from].tokenize(text);
+					return;
+				}
+				int mid = (from + to) >>> 1;
+				invokeAll(new ChunkTask (text, chunks, from, mid), new ChunkTask (text, chunks, mid, to));
+			}
+		}
+
+		/* A growing list of ints (token starts and ends, in pairs). */
+		static final class Ints {
+			int[] items = new int[16];
+			int size;
+			void add(int value) {
+				if (size == items.length)
+					items = Arrays.copyOf(items, items.length * 2);
+				items[size++] = value;
+			}
+			void add(int start, int end) {
+				if (size + 2 > items.length)
+					items = Arrays.copyOf(items, items.length * 2);
+				items[size++] = start;
+				items[size++] = end;
+			}
+			/* Adds those of ints from idx on. */
+			void addAll(Ints ints, int idx) {
+				int count = ints.size - idx;
+				if (size + count > items.length)
+					items = Arrays.copyOf(items, Math.max(items.length * 2, size + count));
+				System.arraycopy(ints.items, idx, items, size, count);
+				size += count;
+			}
+		}
+	}
+
+	/*
+	 * Tracks, one character at a time, whether an argument collected so far is complete (see tokenComplete).
+	 * The argument is complete if it has "name=value" (where a value containing a quote needs the closing quote too),
+	 * or it has no equals sign and the next token doesn't start with one.  A second equals sign followed by anything
+	 * other than more equals signs means it is never complete, so it will take every remaining token.
+	 */
+	static class Continuation {
+		private int length;
+		private boolean sawEquals;
+		private boolean equalsFirst;
+		private int valueLength;
+		private int valueQuotes;
+		private boolean valueHasText;
+		private boolean sawSecondEquals;
+		private boolean textAfterSecondEquals;
+
+		void reset() {
+			length = 0;
+			sawEquals = equalsFirst = false;
+			valueLength = valueQuotes = 0;
+			valueHasText = sawSecondEquals = textAfterSecondEquals = false;
+		}
+		void append(char c) {
+			if (! sawEquals) {
+				if (c == '=') {
+					sawEquals = true;
+					equalsFirst = (length == 0);
+				}
+			} else if (! sawSecondEquals) {
+				if (c == '=') {
+					sawSecondEquals = true;
+				} else {
+					valueLength++;
+					if (c == '"')
+						valueQuotes++;
+					if (c > ' ')
+						valueHasText = true;
+				}
+			} else if (c != '=') {
+				textAfterSecondEquals = true;
+			}
+			length++;
+		}
+		boolean complete(boolean nextStartsWithEquals) {
+			// If we have name=value, we're done (but remember that value may have more than one part)
+			if (sawEquals && ! equalsFirst) {
+				if (valueLength > 0 && ! textAfterSecondEquals) {
+					if (valueQuotes > 0) // there's a quote.  Are there two?
+						return valueQuotes > 1;
+					return valueHasText; // we either have name=value or name=
+				}
+				return false; // name= but no value
+			}
+			// So now we know we just have name.  if next begins with = we continue (not complete), otherwise we are.
+			return ! nextStartsWithEquals;
+		}
+	}
+
+	/*
+	 * Turns tokens into arguments and parameters in a single pass, passing them to an ArgVisitor.  Tokens are pushed in one at a
+	 * time; an option stays open until a token arrives that doesn't continue it (or the end), and is only then passed on.
+	 * Each option's tokens are fed through once, both to decide whether the next token continues it (see Continuation) and to
+	 * collect its value, which is made of the non-blank parts between equals signs and spaces, joined with single spaces and
+	 * with any enclosing quotes stripped.
+	 * Names, values and parameters come out as views of the token text, so the text of every token has to stay unchanged
+	 * until the end.  A value is only copied when it isn't one stretch of the text, i.e. when its parts are separated by
+	 * anything other than a single space.  The views themselves are reused from one call to the next (as ArgVisitor allows),
+	 * so a Scanner allocates nothing for them; a visitor that keeps them has to copy them (see ResultBuilder).
+	 */
+	static class Scanner {
+		private ArgVisitor visitor;
+		private final Continuation continuation = new Continuation();
+		private final StringBuilder value = new StringBuilder();
+		private int valueLength;
+		private boolean valueIsView;  // the value so far is valueText[valueStart, valueEnd), otherwise it is in value
+		private CharSequence valueText;
+		private int valueStart;
+		private int valueEnd;
+		private int firstQuote;
+		private int lastQuote;
+		private boolean separated;    // after --, everything is a parameter
+		private boolean inOption;
+		private boolean longOption;
+		private CharSequence nameText;
+		private int nameStart;
+		private int nameEnd;
+		private final Slice nameView = new Slice (null, 0, 0);
+		private final Slice valueView = new Slice (null, 0, 0);
+		private final Slice paramView = new Slice (null, 0, 0);
+		int tokenCount;               // for ParseListener
+		int merges;
+		// the limits (see ParseLimits), and what they count
+		private int maxInputLength = Integer.MAX_VALUE;
+		private int maxTokens = Integer.MAX_VALUE;
+		private int maxArgs = Integer.MAX_VALUE;
+		private int maxValueLength = Integer.MAX_VALUE;
+		private int maxMerges = Integer.MAX_VALUE;
+		private int inputLength;      // of the tokens so far
+		private int argCount;
+		private int optionMerges;     // onto the current option
+
+		Scanner(ArgVisitor visitor) {
+			this.visitor = visitor;
+		}
+		/* Has what follows go to another visitor (for ParseContext, which keeps its Scanner). */
+		Scanner to(ArgVisitor visitor) {
+			this.visitor = visitor;
+			return this;
+		}
+
+		void run(Tokens tokens) {
+			reset();
+			while (tokens.next())
+				token(tokens.text, tokens.start, tokens.end);
+			end();
+		}
+
+		/*
+		 * Holds what follows to the given limits (or none, for null), as they are now: ParseLimits can be changed, so a Scanner
+		 * that is reused reads them again at the start of each parse.
+		 */
+		Scanner limit(ParseLimits limits) {
+			maxInputLength = (limits == null) ? Integer.MAX_VALUE : limits.maxInputLength();
+			maxTokens = (limits == null) ? Integer.MAX_VALUE : limits.maxTokens();
+			maxArgs = (limits == null) ? Integer.MAX_VALUE : limits.maxArgs();
+			maxValueLength = (limits == null) ? Integer.MAX_VALUE : limits.maxValueLength();
+			maxMerges = (limits == null) ? Integer.MAX_VALUE : limits.maxMerges();
+			return this;
+		}
+		/* For an input of the given length, known before it is scanned. */
+		void checkInputLength(int length) {
+			if (length > maxInputLength)
+				throw new ParseLimitException (Limit.INPUT_LENGTH, maxInputLength, null);
+		}
+
+		/* Forgets everything about the last run, including whatever it failed part way through. */
+		void reset() {
+			separated = inOption = false;
+			tokenCount = merges = 0;
+			inputLength = argCount = 0;
+			valueText = nameText = null;
+			value.setLength(0);
+			nameView.set(null, 0, 0);
+			valueView.set(null, 0, 0);
+			paramView.set(null, 0, 0);
+		}
+
+		/* Carries on from a point where no option was open (for IncrementalParse), after the separator or not. */
+		void restart(boolean separated) {
+			reset();
+			this.separated = separated;
+		}
+		boolean inOption() {
+			return inOption;
+		}
+		boolean separated() {
+			return separated;
+		}
+
+		void token(CharSequence text, int start, int end) {
+			tokenCount++;
+			inputLength += end - start;
+			if (tokenCount > maxTokens)
+				throw new ParseLimitException (Limit.TOKENS, maxTokens, null);
+			checkInputLength(inputLength);
+			if (separated) {
+				visitor.onParam(view(paramView, text, start, end));
+				return;
+			}
+			if (inOption) {
+				if (continues(text, start, end)) {
+					extendOption(text, start, end);
+					return;
+				}
+				finishOption();
+			}
+			int from = trimStart(text, start, end);
+			int to = trimEnd(text, from, end);
+			int len = to - from;
+			if (len == 2 && text.charAt(from) == '-' && text.charAt(from+1) == '-') { // separator.  Everything following this is a parameter
+				separated = true;
+				visitor.onSeparator();
+
+			} else if (len > 1 && text.charAt(from) == '-' && text.charAt(from+1) == '-') { // long argument name.
+				startOption(text, from, to);
+				longOption = true;
+
+			} else if (len > 0 && text.charAt(from) == '-') { // short argument name(or names).
+				startOption(text, from, to);
+				longOption = false;
+
+			} else { // this is probably an error: from the requirements, we shouldn't be in this position if the arguments are valid.  Treating as parameter for now
+				visitor.onParam(view(paramView, text, from, to));
+			}
+		}
+
+		void end() {
+			if (inOption)
+				finishOption();
+		}
+
+		private void finishOption() {
+			inOption = false;
+			CharSequence value = optionValue();
+			if (longOption) {
+				countArgs(1);
+				visitor.onLongOption(view(nameView, nameText, nameStart+2, nameEnd), value);
+			} else {
+				if (nameEnd - nameStart < 2)
+					throw new IllegalArgumentException ("Missing argument name in \"" + name(0) + "\"");
+				countArgs(nameEnd - nameStart - 1);
+				for (int ff=nameStart+1; ff < nameEnd-1; ff++)
+					visitor.onShortFlag(nameText.charAt(ff), null);
+				visitor.onShortFlag(nameText.charAt(nameEnd-1), value);
+			}
+		}
+
+		private void countArgs(int count) {
+			argCount += count;
+			if (argCount > maxArgs)
+				throw new ParseLimitException (Limit.ARGS, maxArgs, null);
+		}
+
+		/* Starts an option with the given token. */
+		void startOption(CharSequence text, int start, int end) {
+			start = trimStart(text, start, end);
+			end = trimEnd(text, start, end);
+			continuation.reset();
+			valueLength = 0;
+			optionMerges = 0;
+			valueIsView = true;
+			valueText = null;
+			firstQuote = lastQuote = -1;
+			inOption = true;
+
+			// the name runs up to the first equals sign or space, and anything after that is part of the value
+			int ii = start;
+			while (ii < end && text.charAt(ii) != '=' && text.charAt(ii) != ' ')
+				continuation.append(text.charAt(ii++));
+			nameText = text;
+			nameStart = start;
+			nameEnd = trimEnd(text, start, ii);
+			if (ii < end) {
+				continuation.append(text.charAt(ii));
+				feed(text, ii+1, end);
+			}
+		}
+		/* Returns true if the given token is part of the current option. */
+		boolean continues(CharSequence text, int start, int end) {
+			return ! continuation.complete(startsWithEquals(text, start, end));
+		}
+		void extendOption(CharSequence text, int start, int end) {
+			merges++;
+			if (++optionMerges > maxMerges)
+				throw new ParseLimitException (Limit.MERGES, maxMerges, name(0));
+			continuation.append(' ');
+			feed(text, start, end);
+		}
+		/* Returns the value of the current option (or null). */
+		CharSequence optionValue() {
+			if (valueLength == 0)
+				return null;
+			int from = 0;
+			int to = valueLength;
+			// if there are quotes, strip them
+			if (firstQuote >= 0) {
+				if (lastQuote == firstQuote)
+					throw new IllegalArgumentException ("Unbalanced quote in the value of \"" + name(0) + "\"");
+				from = firstQuote+1;
+				to = lastQuote;
+			}
+			if (valueIsView)
+				return view(valueView, valueText, valueStart + from, valueStart + to);
+			return value.substring(from, to);
+		}
+
+		String name(int skip) {
+			return substring(nameText, nameStart + skip, nameEnd);
+		}
+
+		private void feed(CharSequence text, int start, int end) {
+			int part = start;
+			for (int ii=start; ii < end; ii++) {
+				char c = text.charAt(ii);
+				continuation.append(c);
+				if (c == '=' || c == ' ') {
+					addPart(text, part, ii);
+					part = ii+1;
+				}
+			}
+			addPart(text, part, end);
+		}
+
+		private void addPart(CharSequence text, int start, int end) {
+			start = trimStart(text, start, end);
+			end = trimEnd(text, start, end);
+			if (start == end)
+				return;
+			int at = 0;
+			if (valueLength == 0) {
+				valueText = text;
+				valueStart = start;
+				valueEnd = end;
+			} else {
+				at = valueLength + 1;
+				if (valueIsView && text == valueText && start == valueEnd + 1 && text.charAt(valueEnd) == ' ') {
+					valueEnd = end;
+				} else {
+					if (valueIsView) {
+						value.setLength(0);
+						value.append(valueText, valueStart, valueEnd);
+						valueIsView = false;
+					}
+					value.append(' ').append(text, start, end);
+				}
+			}
+			for (int ii=start; ii < end; ii++) {
+				if (text.charAt(ii) == '"') {
+					if (firstQuote < 0)
+						firstQuote = at + ii - start;
+					lastQuote = at + ii - start;
+				}
+			}
+			valueLength = at + end - start;
+			if (valueLength > maxValueLength)
+				throw new ParseLimitException (Limit.VALUE_LENGTH, maxValueLength, name(0));
+		}
+	}
+
+	/*
+	 * Collects what a Scanner finds into the storage behind a Result.  The Scanner's views are only good for the duration of
+	 * each call, so the storage keeps a copy of each one (see SlicePool), which is good for as long as the text it came from.
+	 */
+	static class ResultBuilder implements ArgVisitor {
+		ArgMap args;
+		ParamList params;
+		NamePool names;        // for the long option names, if the parser has one
+		NameIndex abbreviations;  // the names long options can abbreviate, if the parser has them
+		ResultBuilder() {
+			start();
+		}
+		/* Has what follows go into a new Result's storage. */
+		void start() {
+			args = new ArgMap();
+			params = new ParamList();
+		}
+		/* Clears result, and has what follows go into it. */
+		void reuse(Result result) {
+			if (result.unmodifiable || result.argMap == null || result.paramList == null)
+				throw new IllegalArgumentException ("Only a modifiable Result from a parse or from new Result() can be reused");
+			result.clear();
+			args = result.argMap;
+			params = result.paramList;
+		}
+		/* Lets go of the last Result. */
+		void release() {
+			args = null;
+			params = null;
+		}
+		@Override
+		public void onShortFlag(char name, CharSequence value) {
+			args.putFlag(name, value);
+		}
+		@Override
+		public void onLongOption(CharSequence name, CharSequence value) {
+			if (abbreviations != null && name.length() > 0) {      // an empty name doesn't abbreviate anything
+				String full = abbreviations.resolve(name);
+				if (full != null)
+					name = full;
+			}
+			args.put((names == null) ? name : names.intern(name), value);
+		}
+		@Override
+		public void onParam(CharSequence param) {
+			params.addView(param);
+		}
+	}
+
+	/*
+	 * The rest of the scan behind a Result from parseLazily, which moves on a token at a time as questions need it to.  Until
+	 * it is finished the ArgMap and ParamList it fills call finish() whenever they are used through the Map or List interface.
+	 */
+	static final class LazyScan {
+		private final Tokens tokens;
+		private final Scanner scanner;
+		private final ArgMap args;
+		private final ParamList params;
+		private boolean done;
+		private RuntimeException failure;
+		LazyScan(Tokens tokens, ResultBuilder builder, ParseLimits limits) {
+			this.tokens = tokens;
+			this.scanner = new Scanner (builder).limit(limits);
+			this.args = builder.args;
+			this.params = builder.params;
+			args.pending = this;
+			params.pending = this;
+		}
+		/* Scans one more token (or the end); returns false once there is nothing left. */
+		private boolean advance() {
+			if (failure != null)
+				throw failure;
+			if (done)
+				return false;
+			try {
+				if (tokens.next()) {
+					scanner.token(tokens.text, tokens.start, tokens.end);
+					return true;
+				}
+				scanner.end();
+			} catch (RuntimeException e) {
+				failure = e;
+				throw e;
+			}
+			done = true;
+			detach();
+			return false;
+		}
+		void finish() {
+			while (advance())
+				;
+		}
+		boolean contains(CharSequence name) {
+			while (! args.containsKey(name))
+				if (! advance())
+					return false;
+			return true;
+		}
+		void reach(int idx) {
+			while (params.size <= idx && advance())
+				;
+		}
+		void detach() {
+			args.pending = null;
+			params.pending = null;
+		}
+	}
+
+	/*
+	 * A view of the characters [start, end) of some text, which copies them into a String the first time toString() is called.
+	 */
+	static final class Slice implements CharSequence {
+		private CharSequence text;
+		private int start;
+		private int end;
+		private String string;
+		Slice(CharSequence text, int start, int end) {
+			set(text, start, end);
+		}
+		/* Makes this a view of something else (for the Slices that get reused). */
+		Slice set(CharSequence text, int start, int end) {
+			this.text = text;
+			this.start = start;
+			this.end = end;
+			this.string = null;
+			return this;
+		}
+		Slice set(Slice other) {
+			this.text = other.text;
+			this.start = other.start;
+			this.end = other.end;
+			this.string = other.string;
+			return this;
+		}
+		@Override
+		public int length() {
+			return end - start;
+		}
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start)
+				throw new IndexOutOfBoundsException ("index " + index + ", length " + (end - start));
+			return text.charAt(start + index);
+		}
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to)
+				throw new IndexOutOfBoundsException ("from " + from + ", to " + to + ", length " + (end - start));
+			return slice(text, start + from, start + to);
+		}
+		@Override
+		public String toString() {
+			if (string == null)
+				string = substring(text, start, end);
+			return string;
+		}
+	}
+
+	/*
+	 * The Map behind a parsed Result.args, laid out to keep a Result small.  Single-character ASCII names (the usual short flags)
+	 * are bits in a 128-bit set, with their values (if any of them has one) in an array ordered the same way as the bits.  Every
+	 * other name goes into an open-addressed table of parallel key and value arrays, which is only created when needed.
+	 * Keys and values from the Scanner are kept as Slices (copies of its views, reused once the map has been cleared; see
+	 * SlicePool), and each one is turned into a String only when it is read through the Map interface.  Lookups by CharSequence (contains/view) compare characters, so they never need a
+	 * String at all.
+	 * Swapping a view for its String is the only change a read makes, and two threads racing to do it just store equal Strings,
+	 * so a map that nothing modifies can be read from any number of threads.
+	 * Every name is a key, so there is no null key: put (and putAll) throw a NullPointerException for one, while get, containsKey
+	 * and remove just don't find it.
+	 */
+	static class ArgMap extends AbstractMap<String, String> {
+		private static final CharSequence REMOVED = new String("");
+		private long flagsLow;             // chars 0-63
+		private long flagsHigh;            // chars 64-127
+		private CharSequence[] flagValues; // by rank among the flags; null until a flag has a value
+		private CharSequence[] keys;       // the table, for everything else; null until needed
+		private CharSequence[] values;
+		private int size;                  // in the table
+		private int used;                  // in the table, including REMOVED markers
+		private int modCount;
+		private SlicePool pool;            // null until the map is first cleared
+		LazyScan pending;                  // for parseLazily, until the scan is finished
+
+		private void complete() {
+			if (pending != null)
+				pending.finish();
+		}
+		private CharSequence keep(CharSequence cs) {
+			return (pool == null) ? SlicePool.copy(cs) : pool.keep(cs);
+		}
+		private void recycle(CharSequence cs) {
+			if (pool != null)
+				pool.recycle(cs);
+		}
+
+		static boolean isFlag(CharSequence key) {
+			return key.length() == 1 && key.charAt(0) < 128;
+		}
+		private boolean hasFlag(char c) {
+			return (c < 64) ? (flagsLow & (1L << c)) != 0 : (flagsHigh & (1L << c)) != 0;
+		}
+		private int flagCount() {
+			return Long.bitCount(flagsLow) + Long.bitCount(flagsHigh);
+		}
+		// the number of flags below c, which is where c's value goes in flagValues
+		private int rank(char c) {
+			if (c < 64)
+				return Long.bitCount(flagsLow & ((1L << c) - 1));
+			return Long.bitCount(flagsLow) + Long.bitCount(flagsHigh & ((1L << c) - 1));
+		}
+
+		/* Adds or replaces a short flag. */
+		void putFlag(char c, CharSequence value) {
+			if (c >= 128) {
+				put(String.valueOf(c), value);
+				return;
+			}
+			int rank = rank(c);
+			if (! hasFlag(c)) {
+				int count = flagCount();
+				if (c < 64)
+					flagsLow |= 1L << c;
+				else
+					flagsHigh |= 1L << c;
+				if (flagValues != null) {
+					if (count == flagValues.length)
+						flagValues = Arrays.copyOf(flagValues, Math.min(128, count * 2));
+					System.arraycopy(flagValues, rank, flagValues, rank + 1, count - rank);
+					flagValues[rank] = null;
+				}
+				modCount++;
+			} else if (flagValues != null) {
+				recycle(flagValues[rank]);
+			}
+			if (value != null && flagValues == null)
+				flagValues = new CharSequence[Math.max(4, flagCount())];
+			if (flagValues != null)
+				flagValues[rank] = keep(value);
+		}
+		private CharSequence flagValue(char c) {
+			return (flagValues == null) ? null : flagValues[rank(c)];
+		}
+		private String flagValueAt(char c) {
+			if (flagValues == null)
+				return null;
+			int rank = rank(c);
+			CharSequence v = flagValues[rank];
+			if (v == null || v instanceof String)
+				return (String) v;
+			String ret = v.toString();
+			flagValues[rank] = ret;
+			return ret;
+		}
+		private void removeFlag(char c) {
+			int count = flagCount();
+			int rank = rank(c);
+			if (c < 64)
+				flagsLow &= ~(1L << c);
+			else
+				flagsHigh &= ~(1L << c);
+			if (flagValues != null) {
+				System.arraycopy(flagValues, rank + 1, flagValues, rank, count - rank - 1);
+				flagValues[count - 1] = null;
+			}
+			modCount++;
+		}
+
+		/* Returns the table slot holding key, or -(slot+1) for the slot it could be added at. */
+		private int find(CharSequence key) {
+			if (keys == null)
+				return -1;
+			int mask = keys.length - 1;
+			int idx = spread(hash(key)) & mask;
+			int free = -1;
+			for (CharSequence k; (k = keys[idx]) != null; idx = (idx+1) & mask) {
+				if (k == REMOVED) {
+					if (free < 0)
+						free = idx;
+				} else if (contentEquals(k, key)) {
+					return idx;
+				}
+			}
+			return -((free < 0 ? idx : free) + 1);
+		}
+
+		boolean containsKey(CharSequence key) {
+			if (isFlag(key))
+				return hasFlag(key.charAt(0));
+			return find(key) >= 0;
+		}
+		CharSequence view(CharSequence key) {
+			if (isFlag(key))
+				return hasFlag(key.charAt(0)) ? flagValue(key.charAt(0)) : null;
+			int idx = find(key);
+			return (idx < 0) ? null : values[idx];
+		}
+		/* Adds or replaces an argument. */
+		void put(CharSequence key, CharSequence value) {
+			if (isFlag(key)) {
+				putFlag(key.charAt(0), value);
+				return;
+			}
+			if (keys == null) {
+				keys = new CharSequence[8];
+				values = new CharSequence[8];
+			}
+			int idx = find(key);
+			if (idx >= 0) {
+				recycle(values[idx]);
+				values[idx] = keep(value);
+				return;
+			}
+			idx = -idx - 1;
+			if (keys[idx] == null) {
+				if ((used + 1) * 4 > keys.length * 3) {
+					rehash(size + 1 > keys.length / 2 ? keys.length * 2 : keys.length);
+					put(key, value);
+					return;
+				}
+				used++;
+			}
+			keys[idx] = keep(key);
+			values[idx] = keep(value);
+			size++;
+			modCount++;
+		}
+		private void rehash(int capacity) {
+			CharSequence[] oldKeys = keys;
+			CharSequence[] oldValues = values;
+			keys = new CharSequence[capacity];
+			values = new CharSequence[capacity];
+			int mask = capacity - 1;
+			for (int ii=0; ii < oldKeys.length; ii++) {
+				CharSequence k = oldKeys[ii];
+				if (k == null || k == REMOVED)
+					continue;
+				int idx = spread(hash(k)) & mask;
+				while (keys[idx] != null)
+					idx = (idx+1) & mask;
+				keys[idx] = k;
+				values[idx] = oldValues[ii];
+			}
+			used = size;
+		}
+		private String keyAt(int idx) {
+			CharSequence k = keys[idx];
+			if (k instanceof String)
+				return (String) k;
+			String ret = k.toString();
+			keys[idx] = ret;
+			return ret;
+		}
+		private String valueAt(int idx) {
+			CharSequence v = values[idx];
+			if (v == null || v instanceof String)
+				return (String) v;
+			String ret = v.toString();
+			values[idx] = ret;
+			return ret;
+		}
+		private void removeAt(int idx) {
+			keys[idx] = REMOVED;
+			values[idx] = null;
+			size--;
+			modCount++;
+		}
+
+		@Override
+		public int size() {
+			complete();
+			return flagCount() + size;
+		}
+		@Override
+		public boolean containsKey(Object key) {
+			complete();
+			return (key instanceof CharSequence) && containsKey((CharSequence) key);
+		}
+		@Override
+		public String get(Object key) {
+			complete();
+			if (! (key instanceof CharSequence))
+				return null;
+			CharSequence name = (CharSequence) key;
+			if (isFlag(name))
+				return hasFlag(name.charAt(0)) ? flagValueAt(name.charAt(0)) : null;
+			int idx = find(name);
+			return (idx < 0) ? null : valueAt(idx);
+		}
+		@Override
+		public String put(String key, String value) {
+			if (key == null)
+				throw new NullPointerException ("key");
+			complete();
+			String ret = get(key);
+			put((CharSequence) key, value);
+			return ret;
+		}
+		@Override
+		public String remove(Object key) {
+			complete();
+			if (! (key instanceof CharSequence))
+				return null;
+			CharSequence name = (CharSequence) key;
+			if (isFlag(name)) {
+				char c = name.charAt(0);
+				if (! hasFlag(c))
+					return null;
+				String ret = flagValueAt(c);
+				removeFlag(c);
+				return ret;
+			}
+			int idx = find(name);
+			if (idx < 0)
+				return null;
+			String ret = valueAt(idx);
+			removeAt(idx);
+			return ret;
+		}
+		@Override
+		public void clear() {
+			complete();
+			if (pool == null)
+				pool = new SlicePool();
+			if (flagValues != null) {
+				for (int ii=0; ii < flagValues.length; ii++)
+					pool.recycle(flagValues[ii]);
+				Arrays.fill(flagValues, null);
+			}
+			flagsLow = flagsHigh = 0;
+			if (keys != null) {
+				for (int ii=0; ii < keys.length; ii++) {
+					pool.recycle(keys[ii]);
+					pool.recycle(values[ii]);
+				}
+				Arrays.fill(keys, null);
+				Arrays.fill(values, null);
+			}
+			size = used = 0;
+			modCount++;
+		}
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			complete();
+			return new AbstractSet<Map.Entry<String, String>>() {
+				@Override
+				public int size() {
+					return ArgMap.this.size();
+				}
+				@Override
+				public void clear() {
+					ArgMap.this.clear();
+				}
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new EntryIterator();
+				}
+			};
+		}
+
+		/* Walks the flags in character order (positions 0-127), then the table (positions 128 onwards). */
+		private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+			private int next = advance(0);
+			private int last = -1;
+			private int expectedModCount = modCount;
+			private int advance(int pos) {
+				for (; pos < 128; pos++)
+					if (hasFlag((char) pos))
+						return pos;
+				int limit = 128 + ((keys == null) ? 0 : keys.length);
+				while (pos < limit && (keys[pos - 128] == null || keys[pos - 128] == REMOVED))
+					pos++;
+				return pos;
+			}
+			@Override
+			public boolean hasNext() {
+				return next < 128 + ((keys == null) ? 0 : keys.length);
+			}
+			@Override
+			public Map.Entry<String, String> next() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+				if (! hasNext())
+					throw new NoSuchElementException();
+				last = next;
+				next = advance(next + 1);
+				final int pos = last;
+				if (pos < 128) {
+					return new AbstractMap.SimpleEntry<String, String>(NamePool.shortName((char) pos), flagValueAt((char) pos)) {
+						private static final long serialVersionUID = 1L;
+						@Override
+						public String setValue(String value) {
+							putFlag((char) pos, value);
+							return super.setValue(value);
+						}
+					};
+				}
+				final int idx = pos - 128;
+				return new AbstractMap.SimpleEntry<String, String>(keyAt(idx), valueAt(idx)) {
+					private static final long serialVersionUID = 1L;
+					@Override
+					public String setValue(String value) {
+						values[idx] = value;
+						return super.setValue(value);
+					}
+				};
+			}
+			@Override
+			public void remove() {
+				if (last < 0)
+					throw new IllegalStateException();
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+				if (last < 128)
+					removeFlag((char) last);
+				else
+					removeAt(last - 128);
+				expectedModCount = modCount;
+				last = -1;
+			}
+		}
+	}
+
+	/*
+	 * The List behind a parsed Result.params.  Like ArgMap it keeps a copy of each view the Scanner gave it, and turns each
+	 * entry into a String the first time it is read.
+	 * replace (for IncrementalParse) leaves a gap where it was, gapLength slots from gapStart, so that the next replace near
+	 * the same place only moves the entries in between rather than all those after it.  Everything else that changes the
+	 * list closes the gap first; with no gap, gapLength is 0 and an index is its own slot.
+	 */
+	static class ParamList extends AbstractList<String> implements RandomAccess {
+		private CharSequence[] items = new CharSequence[8];
+		private int size;
+		private int gapStart;
+		private int gapLength;
+		private SlicePool pool;    // null until the list is first cleared
+		LazyScan pending;          // for parseLazily, until the scan is finished
+
+		private void complete() {
+			if (pending != null)
+				pending.finish();
+		}
+		private int slot(int idx) {
+			return (idx < gapStart) ? idx : idx + gapLength;
+		}
+		/* Moves the gap to before the entry at idx, nulling the slots it leaves. */
+		private void moveGap(int idx) {
+			if (gapLength == 0) {
+				// nothing to move
+			} else if (idx < gapStart) {
+				System.arraycopy(items, idx, items, idx + gapLength, gapStart - idx);
+				Arrays.fill(items, idx, Math.min(gapStart, idx + gapLength), null);
+			} else if (idx > gapStart) {
+				System.arraycopy(items, gapStart + gapLength, items, gapStart, idx - gapStart);
+				Arrays.fill(items, Math.max(idx, gapStart + gapLength), idx + gapLength, null);
+			}
+			gapStart = idx;
+		}
+		private void closeGap() {
+			if (gapLength > 0) {
+				moveGap(size);
+				gapStart = gapLength = 0;
+			}
+		}
+
+		void addView(CharSequence item) {
+			closeGap();
+			if (size == items.length)
+				items = Arrays.copyOf(items, size * 2);
+			items[size++] = (pool == null) ? SlicePool.copy(item) : pool.keep(item);
+			modCount++;
+		}
+		CharSequence view(int idx) {
+			checkIndex(idx, size);
+			return items[slot(idx)];
+		}
+		private void checkIndex(int idx, int limit) {
+			if (idx < 0 || idx >= limit)
+				throw new IndexOutOfBoundsException ("Index: " + idx + ", Size: " + size);
+		}
+
+		@Override
+		public int size() {
+			complete();
+			return size;
+		}
+		@Override
+		public String get(int idx) {
+			complete();
+			checkIndex(idx, size);
+			int slot = slot(idx);
+			CharSequence item = items[slot];
+			if (item == null || item instanceof String)
+				return (String) item;
+			String ret = item.toString();
+			items[slot] = ret;
+			return ret;
+		}
+		@Override
+		public Iterator<String> iterator() {
+			complete();
+			return super.iterator();
+		}
+		@Override
+		public ListIterator<String> listIterator(int idx) {
+			complete();
+			return super.listIterator(idx);
+		}
+		@Override
+		public String set(int idx, String item) {
+			complete();
+			String ret = get(idx);
+			items[slot(idx)] = item;
+			return ret;
+		}
+		@Override
+		public void add(int idx, String item) {
+			complete();
+			checkIndex(idx, size + 1);
+			closeGap();
+			if (size == items.length)
+				items = Arrays.copyOf(items, size * 2);
+			System.arraycopy(items, idx, items, idx + 1, size - idx);
+			items[idx] = item;
+			size++;
+			modCount++;
+		}
+		/*
+		 * Replaces the count items from idx with the given ones (for IncrementalParse), moving the gap there: the work is in
+		 * proportion to the items given and how far the gap moves, not to the size of the list.
+		 */
+		void replace(int idx, int count, List<String> with) {
+			complete();
+			moveGap(idx + count);
+			gapStart = idx;
+			gapLength += count;
+			Arrays.fill(items, idx, idx + count, null);
+			if (with.size() > gapLength) {
+				int tail = size - idx - count;    // the items after the gap
+				CharSequence[] bigger = new CharSequence[Math.max(items.length * 2, size - count + with.size() + 8)];
+				System.arraycopy(items, 0, bigger, 0, gapStart);
+				System.arraycopy(items, gapStart + gapLength, bigger, bigger.length - tail, tail);
+				gapLength = bigger.length - gapStart - tail;
+				items = bigger;
+			}
+			for (int ii=0; ii < with.size(); ii++)
+				items[gapStart++] = with.get(ii);
+			gapLength -= with.size();
+			size += with.size() - count;
+			modCount++;
+		}
+		@Override
+		public String remove(int idx) {
+			complete();
+			String ret = get(idx);
+			closeGap();
+			System.arraycopy(items, idx + 1, items, idx, size - idx - 1);
+			items[--size] = null;
+			modCount++;
+			return ret;
+		}
+		@Override
+		public void clear() {
+			complete();
+			closeGap();
+			if (pool == null)
+				pool = new SlicePool();
+			for (int ii=0; ii < size; ii++)
+				pool.recycle(items[ii]);
+			Arrays.fill(items, 0, size, null);
+			size = 0;
+			modCount++;
+		}
+	}
+
+	/*
+	 * The Map behind a frozen Result: names and values alternating in one array, sorted by name, which is searched by
+	 * comparing characters so that lookups by CharSequence need no String.  It can't be changed.
+	 */
+	static final class FrozenArgs extends AbstractMap<String, String> {
+		private static final FrozenArgs EMPTY = new FrozenArgs (new String[0]);
+		private final String[] entries;
+
+		private FrozenArgs(String[] entries) {
+			this.entries = entries;
+		}
+		static FrozenArgs of(Map<String, String> args, NamePool names) {
+			if (args.isEmpty())
+				return EMPTY;
+			String[] keys = new String[args.size()];
+			int count = 0;
+			for (String key: args.keySet())
+				keys[count++] = names.intern(key);
+			Arrays.sort(keys);
+			String[] entries = new String[count * 2];
+			for (int ii=0; ii < count; ii++) {
+				entries[ii*2] = keys[ii];
+				entries[ii*2 + 1] = args.get(keys[ii]);
+			}
+			return new FrozenArgs (entries);
+		}
+		/* Returns the index of name in entries, or -1 if it isn't there. */
+		int find(CharSequence name) {
+			int lo = 0;
+			int hi = entries.length / 2 - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				int cmp = compare(entries[mid*2], name);
+				if (cmp == 0)
+					return mid*2;
+				if (cmp < 0)
+					lo = mid + 1;
+				else
+					hi = mid - 1;
+			}
+			return -1;
+		}
+		private static int compare(String left, CharSequence right) {
+			int len = Math.min(left.length(), right.length());
+			for (int ii=0; ii < len; ii++) {
+				char l = left.charAt(ii);
+				char r = right.charAt(ii);
+				if (l != r)
+					return l - r;
+			}
+			return left.length() - right.length();
+		}
+		CharSequence view(CharSequence name) {
+			int idx = find(name);
+			return (idx < 0) ? null : entries[idx + 1];
+		}
+
+		@Override
+		public int size() {
+			return entries.length / 2;
+		}
+		@Override
+		public boolean containsKey(Object key) {
+			return (key instanceof CharSequence) && find((CharSequence) key) >= 0;
+		}
+		@Override
+		public String get(Object key) {
+			if (! (key instanceof CharSequence))
+				return null;
+			int idx = find((CharSequence) key);
+			return (idx < 0) ? null : entries[idx + 1];
+		}
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			return new AbstractSet<Map.Entry<String, String>>() {
+				@Override
+				public int size() {
+					return FrozenArgs.this.size();
+				}
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new Iterator<Map.Entry<String, String>>() {
+						private int next;
+						@Override
+						public boolean hasNext() {
+							return next < entries.length;
+						}
+						@Override
+						public Map.Entry<String, String> next() {
+							if (! hasNext())
+								throw new NoSuchElementException();
+							next += 2;
+							return new AbstractMap.SimpleImmutableEntry<String, String>(entries[next - 2], entries[next - 1]);
+						}
+					};
+				}
+			};
+		}
+	}
+
+	/*
+	 * The List behind a frozen Result: just the parameters, in an array.  It can't be changed.
+	 */
+	static final class FrozenParams extends AbstractList<String> implements RandomAccess {
+		private static final FrozenParams EMPTY = new FrozenParams (new String[0]);
+		private final String[] items;
+
+		private FrozenParams(String[] items) {
+			this.items = items;
+		}
+		static FrozenParams of(List<String> params) {
+			if (params.isEmpty())
+				return EMPTY;
+			return new FrozenParams (params.toArray(new String[params.size()]));
+		}
+		@Override
+		public int size() {
+			return items.length;
+		}
+		@Override
+		public String get(int idx) {
+			return items[idx];
+		}
+	}
+
+	/*
+	 * Slices for ArgMap and ParamList to keep copies of the Scanner's views in.  Clearing either one gives its Slices back to
+	 * its pool, and the next parse into it takes them out again, so refilling a Result allocates none.  Any view of a cleared
+	 * Result handed out earlier may therefore change; see Result.clear().
+	 */
+	static final class SlicePool {
+		private Slice[] slices = new Slice[16];
+		private int count;
+
+		/* What to keep for cs: Strings (and nulls) as they are, views as a Slice of the same text. */
+		static CharSequence copy(CharSequence cs) {
+			return (cs instanceof Slice) ? new Slice (null, 0, 0).set((Slice) cs) : cs;
+		}
+		CharSequence keep(CharSequence cs) {
+			if (! (cs instanceof Slice))
+				return cs;
+			if (count == 0)
+				return copy(cs);
+			Slice ret = slices[--count];
+			slices[count] = null;
+			return ret.set((Slice) cs);
+		}
+		void recycle(CharSequence cs) {
+			if (! (cs instanceof Slice))
+				return;
+			if (count == slices.length)
+				slices = Arrays.copyOf(slices, count * 2);
+			slices[count++] = ((Slice) cs).set(null, 0, 0);
+		}
+	}
+
+	// trimStart and trimEnd skip the same characters as String.trim()
+	static int trimStart(CharSequence text, int start, int end) {
+		while (start < end && text.charAt(start) <= ' ')
+			start++;
+		return start;
+	}
+	static int trimEnd(CharSequence text, int start, int end) {
+		while (end > start && text.charAt(end-1) <= ' ')
+			end--;
+		return end;
+	}
+	static boolean startsWithEquals(CharSequence text, int start, int end) {
+		start = trimStart(text, start, end);
+		return start < end && text.charAt(start) == '=';
+	}
+	static String substring(CharSequence text, int start, int end) {
+		if (text instanceof String)
+			return ((String) text).substring(start, end);
+		if (text instanceof AsciiBytes)
+			return ((AsciiBytes) text).substring(start, end);
+		return new StringBuilder(end - start).append(text, start, end).toString();
+	}
+	// a whole String is its own view
+	static CharSequence slice(CharSequence text, int start, int end) {
+		if (start == 0 && end == text.length() && text instanceof String)
+			return text;
+		return new Slice (text, start, end);
+	}
+	// the same, reusing holder rather than allocating
+	static CharSequence view(Slice holder, CharSequence text, int start, int end) {
+		if (start == 0 && end == text.length() && text instanceof String)
+			return text;
+		return holder.set(text, start, end);
+	}
+	// the same as String.hashCode(), for any CharSequence
+	static int hash(CharSequence text) {
+		if (text instanceof String)
+			return text.hashCode();
+		int ret = 0;
+		for (int ii=0; ii < text.length(); ii++)
+			ret = 31 * ret + text.charAt(ii);
+		return ret;
+	}
+	static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+	static boolean contentEquals(CharSequence left, CharSequence right) {
+		if (left == right)
+			return true;
+		int len = left.length();
+		if (len != right.length())
+			return false;
+		for (int ii=0; ii < len; ii++)
+			if (left.charAt(ii) != right.charAt(ii))
+				return false;
+		return true;
+	}
 }
 
@@ -0,0 +1,459 @@
+package org.ferrilidium.args;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.ferrilidium.args.FeSimpleArgs.ArgMap;
+import org.ferrilidium.args.FeSimpleArgs.ArgVisitor;
+import org.ferrilidium.args.FeSimpleArgs.CharTokens;
+import org.ferrilidium.args.FeSimpleArgs.ParamList;
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.ferrilidium.args.FeSimpleArgs.Scanner;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Keeps a command line being edited (as in an interactive shell, one keystroke at a time) parsed, redoing only the part of it
+ * that an edit could have changed.
+ *     IncrementalParse line = new IncrementalParse();
+ *     Result result = line.parse("--user=bob -v");
+ *     line.edit(6, 3, "alice");           // result now has user=alice
+ * After each edit the Result is the same as FeSimpleArgs.parse(line()) would give, including throwing the same
+ * IllegalArgumentException when the line can't be parsed.
+ *
+ * The line is kept as a run of pieces, each of which starts where no argument is open: an argument along with any tokens
+ * joined onto it (such as the "= value" of -a = value), a parameter, or the separator.  An edit scans again from the piece
+ * holding the last token that ends before the edit (which might now take tokens from after it) up to the first piece after
+ * the edit that starts at the same place, in the same state, as before; everything after that is kept.  A quote typed into
+ * the line can pair up with the one unmatched quote before it, if there is one, so it goes back to that.
+ * The characters of the line, its pieces and the Result's parameters are each kept with a gap at the last edit, and the
+ * pieces after the gap count their place back from the end of the line, so nothing after an edit is moved or renumbered.
+ * So the work per keystroke is the part of the line around the edit, plus moving the gaps from the last edit to this one;
+ * typing in one place costs the same however long the line is.  (An edit that takes away the last setting of an argument
+ * that is set earlier too also looks back for the one before it.)
+ *
+ * The Result is updated in place by each edit (it can't be changed otherwise); freeze() it to keep it as it is.  The names,
+ * values and parameters in it are Strings of their own.  After an edit that throws, the Result is left as it was, and the next
+ * edit parses the whole line again.
+ *
+ * An IncrementalParse is not thread safe.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public final class IncrementalParse {
+	private final Text line = new Text();
+	private Piece[] pieces = new Piece[16];  // before of them at the start, then the gap, then after of them at the end
+	private int before;
+	private int after;
+	private int paramsBefore;       // the parameters of the pieces before the gap
+	private Piece openQuote;        // the piece with the unmatched quote, if there is one (there can't be more than one)
+	private final HashMap<String, Setters> setters = new HashMap<>();
+	private final ArgMap args = new ArgMap();
+	private final ParamList params = new ParamList();
+	private final Result result = new Result (args, params).unmodifiable();
+	private final Recorder recorder = new Recorder();
+	private final Scanner scanner = new Scanner (recorder);
+	private final CharTokens tokens = new CharTokens ("", 0, 0);
+	private boolean stale;   // an edit failed, so the pieces are of an older line
+
+	/**
+	 * Parses the whole of the given line, forgetting the one before.
+	 * @return the Result, which later edits update
+	 * @throws IllegalArgumentException as FeSimpleArgs.parse does
+	 */
+	public Result parse(CharSequence text) {
+		moveGap(0);
+		line.replace(0, line.length(), text);
+		return rescan(0, 0, false, after, false);
+	}
+
+	/**
+	 * Replaces the deleted characters at offset with inserted, and brings the Result up to date.
+	 * @param offset where the edit is, in the line as it was
+	 * @param deleted how many characters it removes from there
+	 * @param inserted what it puts in their place (or null or "" for nothing)
+	 * @return the Result, as parse(line()) would have it
+	 * @throws IllegalArgumentException as FeSimpleArgs.parse does, if the line can't be parsed
+	 * @throws IndexOutOfBoundsException if the edit doesn't fit in the line
+	 */
+	public Result edit(int offset, int deleted, CharSequence inserted) {
+		if (offset < 0 || deleted < 0 || offset > line.length() - deleted)
+			throw new IndexOutOfBoundsException ("Edit at " + offset + " of " + deleted + " characters, in " + line.length());
+		if (inserted == null)
+			inserted = "";
+		if (stale) {
+			moveGap(0);
+			line.replace(offset, deleted, inserted);
+			return rescan(0, 0, false, after, false);
+		}
+		// everything up to the change to the line is worked out first, while the pieces' places still match it
+		int from = restartPiece(offset);
+		if (openQuote != null && hasQuote(inserted)) {
+			// the unmatched quote might now have a partner, and the token it starts join the piece before
+			int quoted = indexOf(openQuote);
+			if (quoted <= from)
+				from = quoted - 1;
+		}
+		int start = 0;
+		boolean separated = false;
+		if (from < 0) {
+			from = 0;
+		} else {
+			start = begin(piece(from));
+			separated = piece(from).separated;
+		}
+		int keep = firstFrom(offset + deleted);
+		moveGap(from);
+		line.replace(offset, deleted, inserted);
+		return rescan(from, start, separated, keep, true);
+	}
+
+	/** The line as it is after the last edit. */
+	public String line() {
+		return line.toString();
+	}
+	/** The Result (read only), which each edit updates. */
+	public Result result() {
+		return result;
+	}
+
+	private int count() {
+		return before + after;
+	}
+	private Piece piece(int idx) {
+		return (idx < before) ? pieces[idx] : pieces[pieces.length - count() + idx];
+	}
+	/* Where the piece starts in the line. */
+	private int begin(Piece piece) {
+		return piece.tail ? line.length() - piece.begin : piece.begin;
+	}
+	/*
+	 * Moves the gap to before the piece at idx, changing the place of each piece that crosses it from one end of the line to
+	 * the other.
+	 */
+	private void moveGap(int idx) {
+		int length = line.length();
+		while (before > idx) {
+			Piece piece = pieces[--before];
+			pieces[before] = null;
+			pieces[pieces.length - ++after] = piece;
+			piece.begin = length - piece.begin;
+			piece.tail = true;
+			paramsBefore -= piece.params.size();
+		}
+		while (before < idx) {
+			int slot = pieces.length - after--;
+			Piece piece = pieces[slot];
+			pieces[slot] = null;
+			pieces[before++] = piece;
+			piece.begin = length - piece.begin;
+			piece.tail = false;
+			paramsBefore += piece.params.size();
+		}
+	}
+
+	/*
+	 * The index of the piece to scan again from for an edit at offset: the one holding the last token that ends before it,
+	 * or -1 if there isn't one.
+	 */
+	private int restartPiece(int offset) {
+		int last = firstFrom(offset) - 1;    // the last piece starting before offset
+		if (last < 0)
+			return -1;
+		Piece piece = piece(last);
+		return (begin(piece) + piece.firstEnd < offset) ? last : last - 1;
+	}
+	/* The index of the first piece starting at or after offset (or the number of pieces, if none does). */
+	private int firstFrom(int offset) {
+		int lo = 0;
+		int hi = count();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (begin(piece(mid)) < offset)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+	private int indexOf(Piece piece) {
+		return firstFrom(begin(piece));
+	}
+	private static boolean hasQuote(CharSequence text) {
+		for (int ii=0; ii < text.length(); ii++) {
+			if (text.charAt(ii) == '"')
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Scans from start, in place of the pieces from index from (which the gap is before) on, until a piece begins at the start
+	 * of an old one from keep on with the scanner in the same state as it was there.  With resync false, nothing old is kept.
+	 */
+	private Result rescan(int from, int start, boolean separated, int keep, boolean resync) {
+		List<Piece> added = new ArrayList<>();
+		Piece current = null;
+		boolean synced = false;
+		tokens.reset(line, start, line.length() - start);
+		scanner.restart(separated);
+		try {
+			while (tokens.next()) {
+				int begin = tokens.begin();
+				if (! scanner.inOption() || ! scanner.continues(line, tokens.start, tokens.end)) {
+					recorder.piece = current;
+					scanner.end();
+					if (resync) {
+						while (keep < count() && begin(piece(keep)) < begin)
+							keep++;
+						if (keep < count() && begin(piece(keep)) == begin && piece(keep).separated == scanner.separated()) {
+							synced = true;
+							break;
+						}
+					}
+					current = new Piece (begin, tokens.pos() - begin, scanner.separated());
+					added.add(current);
+				}
+				if (tokens.pos() == tokens.end && line.charAt(begin) == '"')
+					current.openQuote = true;
+				recorder.piece = current;
+				scanner.token(line, tokens.start, tokens.end);
+			}
+			if (! synced) {
+				recorder.piece = current;
+				scanner.end();
+				keep = count();
+			}
+		} catch (RuntimeException e) {
+			stale = true;
+			throw e;
+		} finally {
+			recorder.piece = null;
+		}
+		replace(from, keep, added);
+		stale = false;
+		return result;
+	}
+	/* Puts added in place of the pieces from from (just after the gap) to keep, and updates the Result to match. */
+	private void replace(int from, int keep, List<Piece> added) {
+		int paramCount = 0;
+		List<String> names = new ArrayList<>();
+		for (int ii=from; ii < keep; ii++) {
+			Piece piece = piece(ii);
+			paramCount += piece.params.size();
+			int first = names.size();
+			piece.addNames(names);
+			for (int jj=first; jj < names.size(); jj++)
+				setters.get(names.get(jj)).count--;
+			piece.removed = true;
+		}
+		List<String> addedParams = new ArrayList<>();
+		for (Piece piece: added) {
+			addedParams.addAll(piece.params);
+			int first = names.size();
+			piece.addNames(names);
+			for (int jj=first; jj < names.size(); jj++)
+				setters.computeIfAbsent(names.get(jj), name -> new Setters()).count++;
+		}
+		params.replace(paramsBefore, paramCount, addedParams);
+
+		int tail = pieces.length - after;
+		Arrays.fill(pieces, tail, tail + (keep - from), null);
+		after -= keep - from;
+		if (count() + added.size() > pieces.length) {
+			Piece[] bigger = new Piece[Math.max(pieces.length * 2, count() + added.size())];
+			System.arraycopy(pieces, 0, bigger, 0, before);
+			System.arraycopy(pieces, pieces.length - after, bigger, bigger.length - after, after);
+			pieces = bigger;
+		}
+		for (Piece piece: added) {
+			pieces[before++] = piece;
+			paramsBefore += piece.params.size();
+		}
+		if (openQuote != null && openQuote.removed)
+			openQuote = null;
+		for (Piece piece: added) {
+			if (piece.openQuote)
+				openQuote = piece;
+		}
+		for (String name: names)
+			updateWinner(name, from, added);
+	}
+
+	/* Finds which piece now sets name last, the pieces from from on (up to the gap) being the added ones. */
+	private void updateWinner(String name, int from, List<Piece> added) {
+		Setters named = setters.get(name);
+		if (named == null)
+			return;       // already done
+		if (named.count == 0) {
+			setters.remove(name);
+			args.remove(name);
+			return;
+		}
+		Piece winner = named.last;
+		if (winner != null && ! winner.removed && winner.tail)
+			return;       // still set after the new pieces
+		Piece found = null;
+		for (int ii=added.size()-1; ii >= 0 && found == null; ii--) {
+			if (added.get(ii).sets(name))
+				found = added.get(ii);
+		}
+		if (found == null && winner != null && ! winner.removed)
+			return;       // still set before them, and not by them
+		for (int ii=from-1; ii >= 0 && found == null; ii--) {
+			if (pieces[ii].sets(name))
+				found = pieces[ii];
+		}
+		named.last = found;
+		args.put(name, found.value(name));
+	}
+
+	/* The pieces that set an argument: how many settings of it they have between them, and the last of them. */
+	private static final class Setters {
+		Piece last;
+		int count;
+	}
+
+	/*
+	 * Part of the line that starts where no argument is open: an argument and the tokens joined onto it, a parameter, or
+	 * the separator; with what it adds to the Result.
+	 */
+	static final class Piece {
+		int begin;              // where its first token starts: in the line before the gap, and back from its end after it
+		boolean tail;           // whether it is after the gap
+		final int firstEnd;     // where its first token ends, from begin
+		final boolean separated;  // whether it comes after the separator
+		boolean openQuote;      // whether a token in it starts with a quote that has no partner
+		String[] names = NO_STRINGS;  // what it sets, in order
+		String[] values = NO_STRINGS;
+		int argCount;
+		final List<String> params = new ArrayList<>(1);
+		boolean removed;
+		private static final String[] NO_STRINGS = new String[0];
+
+		Piece(int begin, int firstEnd, boolean separated) {
+			this.begin = begin;
+			this.firstEnd = firstEnd;
+			this.separated = separated;
+		}
+		void set(String name, String value) {
+			if (argCount == names.length) {
+				names = Arrays.copyOf(names, argCount + 4);
+				values = Arrays.copyOf(values, argCount + 4);
+			}
+			names[argCount] = name;
+			values[argCount++] = value;
+		}
+		boolean sets(String name) {
+			for (int ii=0; ii < argCount; ii++) {
+				if (names[ii].equals(name))
+					return true;
+			}
+			return false;
+		}
+		/* The value it gives name (the last, if it sets it more than once). */
+		String value(String name) {
+			for (int ii=argCount-1; ii >= 0; ii--) {
+				if (names[ii].equals(name))
+					return values[ii];
+			}
+			return null;
+		}
+		void addNames(List<String> to) {
+			for (int ii=0; ii < argCount; ii++)
+				to.add(names[ii]);
+		}
+	}
+
+	/* Copies what the Scanner finds into the current Piece. */
+	private static final class Recorder implements ArgVisitor {
+		Piece piece;
+		@Override
+		public void onShortFlag(char name, CharSequence value) {
+			piece.set((name < 128) ? NamePool.shortName(name) : String.valueOf(name), (value == null) ? null : value.toString());
+		}
+		@Override
+		public void onLongOption(CharSequence name, CharSequence value) {
+			piece.set(name.toString(), (value == null) ? null : value.toString());
+		}
+		@Override
+		public void onParam(CharSequence param) {
+			piece.params.add(param.toString());
+		}
+	}
+
+	/* The characters of the line, with a gap at the last edit, so that an edit only moves those between it and the last. */
+	private static final class Text implements CharSequence {
+		private char[] chars = new char[64];
+		private int gapStart;
+		private int gapEnd = chars.length;
+
+		@Override
+		public int length() {
+			return chars.length - (gapEnd - gapStart);
+		}
+		@Override
+		public char charAt(int idx) {
+			return chars[(idx < gapStart) ? idx : idx + (gapEnd - gapStart)];
+		}
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			return substring(from, to);
+		}
+		@Override
+		public String toString() {
+			return substring(0, length());
+		}
+		private String substring(int from, int to) {
+			if (from < 0 || to > length() || from > to)
+				throw new IndexOutOfBoundsException ("from " + from + ", to " + to + ", length " + length());
+			StringBuilder sb = new StringBuilder (to - from);
+			if (from < gapStart)
+				sb.append(chars, from, Math.min(to, gapStart) - from);
+			if (to > gapStart)
+				sb.append(chars, Math.max(from, gapStart) + (gapEnd - gapStart), to - Math.max(from, gapStart));
+			return sb.toString();
+		}
+		void replace(int offset, int deleted, CharSequence inserted) {
+			int gap = gapEnd - gapStart;
+			if (offset < gapStart)
+				System.arraycopy(chars, offset, chars, offset + gap, gapStart - offset);
+			else
+				System.arraycopy(chars, gapEnd, chars, gapStart, offset - gapStart);
+			gapStart = offset;
+			gapEnd = offset + gap + deleted;
+			int length = inserted.length();
+			if (length > gapEnd - gapStart) {
+				int tail = chars.length - gapEnd;
+				char[] bigger = new char[Math.max(chars.length * 2, chars.length - (gapEnd - gapStart) + length + 16)];
+				System.arraycopy(chars, 0, bigger, 0, gapStart);
+				System.arraycopy(chars, gapEnd, bigger, bigger.length - tail, tail);
+				gapEnd = bigger.length - tail;
+				chars = bigger;
+			}
+			for (int ii=0; ii < length; ii++)
+				chars[gapStart++] = inserted.charAt(ii);
+		}
+	}
+}
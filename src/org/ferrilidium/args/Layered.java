@@ -0,0 +1,181 @@
+package org.ferrilidium.args;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * A view of a Result over a stack of ConfigLayers (see Result.layered()): a name is looked up in the Result, and if it wasn't given
+ * there, in each layer in turn, the first layer holding it winning.  Nothing is copied, so making one costs the same however
+ * large the layers are.
+ * What a name resolves to below the Result is kept the first time it is looked up, since the layers never change; names that
+ * no layer holds aren't kept, so looking up any number of them doesn't grow it past the names in the layers.  The Result
+ * itself is checked every time, so changes to it show through.  A Layered can be shared between threads as long as its Result
+ * can be.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public final class Layered {
+	/** What source() returns for a name given in the Result. */
+	public static final String ARGS = "args";
+
+	private final Result result;
+	private final ConfigLayer[] layers;
+	private volatile Resolved[] table = new Resolved[8];  // names already found in the layers
+	private int size;
+	private volatile Conversions conversions;
+
+	/*
+	 * A name looked up in the layers: the index of the layer it was found in (or -1), and its value there.
+	 * Entries are immutable, so lookups needn't lock (as in Conversions).
+	 */
+	private static final class Resolved {
+		final String name;
+		final int layer;
+		final String value;
+		Resolved(String name, int layer, String value) {
+			this.name = name;
+			this.layer = layer;
+			this.value = value;
+		}
+	}
+	private static final Resolved MISSING = new Resolved (null, -1, null);
+
+	Layered(Result result, ConfigLayer[] layers) {
+		this.result = result;
+		this.layers = layers;
+	}
+
+	/** Returns true if the name was given in the Result or is held by any layer, with or without a value. */
+	public boolean contains (CharSequence name) {
+		return result.contains(name) || resolve(name).layer >= 0;
+	}
+	/** Returns the value of the name from the Result or the first layer holding it, or null if it has no value there (or is nowhere). */
+	public CharSequence get (CharSequence name) {
+		if (result.contains(name))
+			return result.get(name);
+		return resolve(name).value;
+	}
+	/** Returns where the name's value comes from: ARGS, the name of a layer, or null if it is nowhere. */
+	public String source (CharSequence name) {
+		if (result.contains(name))
+			return ARGS;
+		int layer = resolve(name).layer;
+		return (layer < 0) ? null : layers[layer].name();
+	}
+
+	/*
+	 * The typed getters, which work as Result's do.
+	 */
+	public int getInt (CharSequence name, int defaultValue) {
+		CharSequence value = get(name);
+		return (value == null) ? defaultValue : (int) conversions().bits(name, Conversions.INT, value);
+	}
+	public long getLong (CharSequence name, long defaultValue) {
+		CharSequence value = get(name);
+		return (value == null) ? defaultValue : conversions().bits(name, Conversions.LONG, value);
+	}
+	public double getDouble (CharSequence name, double defaultValue) {
+		CharSequence value = get(name);
+		return (value == null) ? defaultValue : Double.longBitsToDouble(conversions().bits(name, Conversions.DOUBLE, value));
+	}
+	/** A name given without a value is true. */
+	public boolean getBoolean (CharSequence name, boolean defaultValue) {
+		if (! contains(name))
+			return defaultValue;
+		CharSequence value = get(name);
+		return (value == null) || conversions().bits(name, Conversions.BOOLEAN, value) != 0;
+	}
+	public Duration getDuration (CharSequence name, Duration defaultValue) {
+		CharSequence value = get(name);
+		return (value == null) ? defaultValue : conversions().duration(name, value);
+	}
+	public long getSize (CharSequence name, long defaultValue) {
+		CharSequence value = get(name);
+		return (value == null) ? defaultValue : conversions().bits(name, Conversions.SIZE, value);
+	}
+	public List<String> getList (CharSequence name, List<String> defaultValue) {
+		return getList (name, ',', defaultValue);
+	}
+	public List<String> getList (CharSequence name, char separator, List<String> defaultValue) {
+		CharSequence value = get(name);
+		return (value == null) ? defaultValue : conversions().list(name, separator, value);
+	}
+	private Conversions conversions() {
+		Conversions ret = conversions;
+		if (ret == null) {
+			synchronized (this) {
+				if ((ret = conversions) == null)
+					conversions = ret = new Conversions();
+			}
+		}
+		return ret;
+	}
+
+	private Resolved resolve(CharSequence name) {
+		Resolved[] t = table;
+		int hash = FeSimpleArgs.spread(FeSimpleArgs.hash(name));
+		for (int idx = hash & (t.length - 1); t[idx] != null; idx = (idx+1) & (t.length - 1))
+			if (FeSimpleArgs.contentEquals(t[idx].name, name))
+				return t[idx];
+		for (int ii=0; ii < layers.length; ii++) {
+			int slot = layers[ii].slot(name);
+			if (slot >= 0)
+				return store(new Resolved (name.toString(), ii, layers[ii].value(slot)));
+		}
+		return MISSING;
+	}
+	private synchronized Resolved store(Resolved entry) {
+		Resolved[] t = table;
+		if ((size + 1) * 4 > t.length * 3) {
+			Resolved[] bigger = new Resolved[t.length * 2];
+			for (Resolved r: t)
+				if (r != null)
+					bigger[free(bigger, r.name)] = r;
+			t = bigger;
+		}
+		int idx = free(t, entry.name);
+		if (t[idx] != null)
+			return t[idx];      // another thread got there first
+		t[idx] = entry;
+		size++;
+		table = t;
+		return entry;
+	}
+	/*
+	 * The number of names kept.
+	 * NOTE: would be private except for the needs of unit testing.
+	 */
+	synchronized int resolvedCount() {
+		return size;
+	}
+	/* Returns the slot holding name, or the empty one it would go in. */
+	private static int free(Resolved[] t, String name) {
+		int idx = FeSimpleArgs.spread(name.hashCode()) & (t.length - 1);
+		while (t[idx] != null && ! t[idx].name.equals(name))
+			idx = (idx+1) & (t.length - 1);
+		return idx;
+	}
+}
@@ -0,0 +1,241 @@
+package org.ferrilidium.args;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * A fixed set of argument names, for finding the ones that start with a given prefix: to complete a name being typed, and to
+ * take an unambiguous abbreviation of a long option (--verb for --verbose) the way GNU getopt_long does.
+ *     NameIndex index = NameIndex.of("verbose", "version", "user");
+ *     index.complete("verb");      // "verbose"
+ *     index.complete("ver");       // null: it could be either
+ *     index.commonPrefix("ver");   // "ver", as far as tab completion can go
+ *     index.withPrefix("ver");     // [verbose, version]
+ * A name that is in the index is never an abbreviation, even if it is the start of other names too.  Given to a parser (see
+ * FeSimpleArgs.setAbbreviations), the index has each long option in its Results that abbreviates a name stand for that name.
+ *
+ * The names are kept sorted, with a trie over them whose every node has the range of names that start with its prefix, so
+ * each question walks the prefix one character at a time and then reads off the range.  An index can't be changed once it
+ * is made, and can be shared between threads.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public final class NameIndex {
+	private final String[] names;       // sorted, each once
+	// the trie: node 0 is the empty prefix, and each node's children are together, in order of their characters
+	private final char[] label;         // the last character of each node's prefix
+	private final int[] lo;             // names[lo, hi) are the ones starting with the node's prefix
+	private final int[] hi;
+	private final int[] firstChild;
+	private final int[] childCount;
+
+	private NameIndex(String[] names) {
+		this.names = names;
+		int capacity = 16;
+		char[] label = new char[capacity];
+		int[] lo = new int[capacity];
+		int[] hi = new int[capacity];
+		int[] firstChild = new int[capacity];
+		int[] childCount = new int[capacity];
+		int[] depth = new int[capacity];
+		hi[0] = names.length;
+		int count = 1;
+		// breadth first, so that each node's children are added one after another
+		for (int node=0; node < count; node++) {
+			int ii = lo[node];
+			if (ii < hi[node] && names[ii].length() == depth[node])
+				ii++;   // the name that is the prefix itself, which sorts first
+			firstChild[node] = count;
+			while (ii < hi[node]) {
+				char c = names[ii].charAt(depth[node]);
+				int jj = ii + 1;
+				while (jj < hi[node] && names[jj].charAt(depth[node]) == c)
+					jj++;
+				if (count == capacity) {
+					capacity *= 2;
+					label = Arrays.copyOf(label, capacity);
+					lo = Arrays.copyOf(lo, capacity);
+					hi = Arrays.copyOf(hi, capacity);
+					firstChild = Arrays.copyOf(firstChild, capacity);
+					childCount = Arrays.copyOf(childCount, capacity);
+					depth = Arrays.copyOf(depth, capacity);
+				}
+				label[count] = c;
+				lo[count] = ii;
+				hi[count] = jj;
+				depth[count] = depth[node] + 1;
+				count++;
+				ii = jj;
+			}
+			childCount[node] = count - firstChild[node];
+		}
+		this.label = Arrays.copyOf(label, count);
+		this.lo = Arrays.copyOf(lo, count);
+		this.hi = Arrays.copyOf(hi, count);
+		this.firstChild = Arrays.copyOf(firstChild, count);
+		this.childCount = Arrays.copyOf(childCount, count);
+	}
+
+	/** An index of the given names (without their dashes). */
+	public static NameIndex of(String... names) {
+		return of(Arrays.asList(names));
+	}
+	/** An index of the given names (without their dashes). */
+	public static NameIndex of(Collection<String> names) {
+		TreeSet<String> sorted = new TreeSet<>();
+		for (String name: names) {
+			if (name == null || name.isEmpty())
+				throw new IllegalArgumentException ("A name can't be " + ((name == null) ? "null" : "empty"));
+			sorted.add(name);
+		}
+		return new NameIndex (sorted.toArray(new String[sorted.size()]));
+	}
+	/**
+	 * An index of the argument names seen in the given Results (such as earlier command lines), and the known names.
+	 * @param results
+	 * @param known more names to include (or none)
+	 */
+	public static NameIndex fromResults(Iterable<Result> results, String... known) {
+		TreeSet<String> sorted = new TreeSet<>(Arrays.asList(known));
+		for (Result result: results) {
+			for (String name: result.args.keySet()) {
+				if (! name.isEmpty())   // as --=value has
+					sorted.add(name);
+			}
+		}
+		return of(sorted);
+	}
+
+	/** The number of names. */
+	public int size() {
+		return names.length;
+	}
+	/** All of the names, in order. */
+	public List<String> names() {
+		return Collections.unmodifiableList(Arrays.asList(names));
+	}
+	/** Whether name is one of the names. */
+	public boolean contains(CharSequence name) {
+		int node = find(name);
+		return node >= 0 && isName(node, name.length());
+	}
+	/** The names that start with prefix (including prefix itself, if it is one), in order. */
+	public List<String> withPrefix(CharSequence prefix) {
+		int node = find(prefix);
+		if (node < 0)
+			return Collections.emptyList();
+		return Collections.unmodifiableList(Arrays.asList(names).subList(lo[node], hi[node]));
+	}
+	/** The number of names that start with prefix. */
+	public int count(CharSequence prefix) {
+		int node = find(prefix);
+		return (node < 0) ? 0 : hi[node] - lo[node];
+	}
+	/**
+	 * The name that prefix stands for: itself if it is a name, or else the only name that starts with it; null if there is no
+	 * such name, or more than one.
+	 */
+	public String complete(CharSequence prefix) {
+		int node = find(prefix);
+		if (node < 0)
+			return null;
+		if (isName(node, prefix.length()) || hi[node] - lo[node] == 1)
+			return names[lo[node]];
+		return null;
+	}
+	/** Whether prefix starts more than one name, and isn't a name itself. */
+	public boolean isAmbiguous(CharSequence prefix) {
+		int node = find(prefix);
+		return node >= 0 && hi[node] - lo[node] > 1 && ! isName(node, prefix.length());
+	}
+	/**
+	 * The longest prefix that every name starting with prefix shares (which is how far tab completion can go without a choice
+	 * being made), or null if no name starts with prefix.
+	 */
+	public String commonPrefix(CharSequence prefix) {
+		int node = find(prefix);
+		if (node < 0)
+			return null;
+		int length = prefix.length();
+		while (childCount[node] == 1 && ! isName(node, length)) {
+			node = firstChild[node];
+			length++;
+		}
+		return names[lo[node]].substring(0, length);
+	}
+	/**
+	 * The same as complete(name), except that a name that could stand for more than one is an error.
+	 * @throws IllegalArgumentException if name starts more than one name, and isn't a name itself
+	 */
+	public String resolve(CharSequence name) {
+		int node = find(name);
+		if (node < 0)
+			return null;
+		if (isName(node, name.length()) || hi[node] - lo[node] == 1)
+			return names[lo[node]];
+		StringBuilder sb = new StringBuilder();
+		for (int ii=lo[node]; ii < hi[node]; ii++)
+			sb.append((ii == lo[node]) ? "" : ", ").append(names[ii]);
+		throw new IllegalArgumentException ("Ambiguous argument name \"" + name + "\" (could be " + sb + ")");
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(names);
+	}
+
+	/* The trie node for prefix, or -1 if no name starts with it. */
+	private int find(CharSequence prefix) {
+		int node = 0;
+		for (int ii=0; ii < prefix.length(); ii++) {
+			char c = prefix.charAt(ii);
+			int from = firstChild[node];
+			int to = from + childCount[node] - 1;
+			node = -1;
+			while (from <= to) {
+				int mid = (from + to) >>> 1;
+				if (label[mid] < c) {
+					from = mid + 1;
+				} else if (label[mid] > c) {
+					to = mid - 1;
+				} else {
+					node = mid;
+					break;
+				}
+			}
+			if (node < 0)
+				return -1;
+		}
+		return node;
+	}
+	/* Whether the prefix of the given node, which is length characters long, is a name. */
+	private boolean isName(int node, int length) {
+		return lo[node] < hi[node] && names[lo[node]].length() == length;
+	}
+}
@@ -0,0 +1,120 @@
+package org.ferrilidium.args;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Canonical Strings for argument names, so that every Result holding "verbose" holds the same String rather than one of its own.
+ * Single-character ASCII names are always the same, prebuilt, Strings; other names are kept the first time they are seen, up
+ * to a maximum number (after which new names are just copied), so input full of made-up names can't grow the pool for ever.
+ * A parser uses a NamePool for the names it puts in Results once it is given one (see FeSimpleArgs.setNamePool), and
+ * Result.freeze() uses one for the names in the frozen Result.
+ * Lookups are by CharSequence, so finding a name that is already pooled allocates nothing.  A NamePool can be shared between
+ * threads: lookups don't lock, and adding a name is synchronized.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public final class NamePool {
+	private static final String[] SHORT_NAMES = new String[128];
+	static {
+		for (int ii=0; ii < SHORT_NAMES.length; ii++)
+			SHORT_NAMES[ii] = String.valueOf((char) ii);
+	}
+	private static final NamePool SHARED = new NamePool();
+
+	private final int maxNames;
+	private volatile String[] table = new String[64];  // open addressed; a String is immutable, so one found is a whole one
+	private int size;
+
+	/** A pool of up to 4096 names. */
+	public NamePool() {
+		this (4096);
+	}
+	/**
+	 * @param maxNames the most names to keep (apart from the single-character ASCII ones)
+	 */
+	public NamePool(int maxNames) {
+		if (maxNames < 0)
+			throw new IllegalArgumentException ("maxNames can't be negative (got " + maxNames + ")");
+		this.maxNames = maxNames;
+	}
+
+	/**
+	 * Returns the pool Result.freeze() uses by default, which holds up to 4096 names.
+	 */
+	public static NamePool shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Returns the canonical String for name: the pooled one if there is one, or otherwise a String of name, which is pooled
+	 * if there is room.
+	 * @param name
+	 */
+	public String intern (CharSequence name) {
+		if (name.length() == 1 && name.charAt(0) < 128)
+			return SHORT_NAMES[name.charAt(0)];
+		String[] t = table;
+		int hash = FeSimpleArgs.spread(FeSimpleArgs.hash(name));
+		for (int idx = hash & (t.length - 1); t[idx] != null; idx = (idx+1) & (t.length - 1))
+			if (FeSimpleArgs.contentEquals(t[idx], name))
+				return t[idx];
+		return add(name.toString(), hash);
+	}
+	/** The number of names pooled, not counting the single-character ASCII ones. */
+	public int size() {
+		return size;
+	}
+
+	/* The String for a single-character ASCII name. */
+	static String shortName(char c) {
+		return SHORT_NAMES[c];
+	}
+
+	private synchronized String add(String name, int hash) {
+		String[] t = table;
+		int idx = hash & (t.length - 1);
+		for (; t[idx] != null; idx = (idx+1) & (t.length - 1))
+			if (t[idx].equals(name))
+				return t[idx];      // another thread got there first
+		if (size >= maxNames)
+			return name;
+		if ((size + 1) * 4 > t.length * 3) {
+			String[] bigger = new String[t.length * 2];
+			for (String s: t) {
+				if (s == null)
+					continue;
+				int jj = FeSimpleArgs.spread(s.hashCode()) & (bigger.length - 1);
+				while (bigger[jj] != null)
+					jj = (jj+1) & (bigger.length - 1);
+				bigger[jj] = s;
+			}
+			t = bigger;
+			idx = hash & (t.length - 1);
+			while (t[idx] != null)
+				idx = (idx+1) & (t.length - 1);
+		}
+		t[idx] = name;
+		size++;
+		table = t;
+		return name;
+	}
+}
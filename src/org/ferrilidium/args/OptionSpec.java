@@ -0,0 +1,362 @@
+package org.ferrilidium.args;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ferrilidium.args.FeSimpleArgs.ArgVisitor;
+import org.ferrilidium.args.FeSimpleArgs.ArrayTokens;
+import org.ferrilidium.args.FeSimpleArgs.CharTokens;
+import org.ferrilidium.args.FeSimpleArgs.ParamList;
+import org.ferrilidium.args.FeSimpleArgs.Scanner;
+import org.ferrilidium.args.FeSimpleArgs.SlicePool;
+import org.ferrilidium.args.FeSimpleArgs.Tokens;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * A fixed set of options, for tools that know what they accept.  Each option has a short name (-v), a long name (--verbose)
+ * or both, and a slot number: its position in the order the options were added, starting at 0.
+ *     OptionSpec spec = OptionSpec.builder()
+ *             .option('v', "verbose")    // slot 0
+ *             .option("port")            // slot 1
+ *             .build();
+ *     OptionSpec.Parsed parsed = spec.parse("-v --port=8080 file1");
+ *     parsed.has(0); parsed.value(1); parsed.params
+ * Parsing is the same as FeSimpleArgs.parse (the same tokens, values, separator and last-wins), except that each option is
+ * looked up as soon as it is found, and one that isn't in the spec throws an IllegalArgumentException straight away.  The
+ * values go into an array by slot rather than a Map; an option given by either of its names fills the same slot.
+ *
+ * An OptionSpec is immutable, and can be shared between threads.  Short names are found with a direct table, and long names
+ * with a perfect hash (hash and displace, with a table at most twice the number of long names): each long name has an entry
+ * of its own, so a lookup is one pass over the name and one comparison.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public final class OptionSpec {
+	private static final int NONE = -1;
+	private final int[] shortSlots;    // by character, for ASCII short names
+	private final char[] otherShorts;  // sorted, for any others
+	private final int[] otherSlots;
+	private final String[] longNames;  // the perfect hash table
+	private final int[] longSlots;
+	private final int[] displacements; // by bucket
+	private final int seed;
+	private final char[] shortNameOf;  // by slot; '\0' if none
+	private final String[] longNameOf; // by slot; null if none
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Collects the options for an OptionSpec.  Each is given the next slot number.
+	 */
+	public static final class Builder {
+		private final List<Character> shorts = new ArrayList<>();
+		private final List<String> longs = new ArrayList<>();
+		private Builder() {
+		}
+		/** Adds an option with only a short name, such as -v. */
+		public Builder option (char shortName) {
+			return add(shortName, null);
+		}
+		/** Adds an option with only a long name, such as --verbose. */
+		public Builder option (String longName) {
+			return add('\0', longName);
+		}
+		/** Adds an option that can be given by either name ('\0' or null for none, but not both). */
+		public Builder option (char shortName, String longName) {
+			return add(shortName, longName);
+		}
+		private Builder add(char shortName, String longName) {
+			if (shortName == '\0' && longName == null)
+				throw new IllegalArgumentException ("An option needs a short name or a long name");
+			if (longName != null && longName.isEmpty())
+				throw new IllegalArgumentException ("A long name can't be empty");
+			if (shortName != '\0' && shorts.contains(shortName))
+				throw new IllegalArgumentException ("Option -" + shortName + " was already added");
+			if (longName != null && longs.contains(longName))
+				throw new IllegalArgumentException ("Option --" + longName + " was already added");
+			shorts.add(shortName);
+			longs.add(longName);
+			return this;
+		}
+		public OptionSpec build() {
+			return new OptionSpec (this);
+		}
+	}
+
+	private OptionSpec(Builder builder) {
+		int count = builder.shorts.size();
+		shortNameOf = new char[count];
+		longNameOf = builder.longs.toArray(new String[count]);
+		shortSlots = new int[128];
+		Arrays.fill(shortSlots, NONE);
+		int others = 0;
+		for (int ii=0; ii < count; ii++) {
+			char c = builder.shorts.get(ii);
+			shortNameOf[ii] = c;
+			if (c >= 128)
+				others++;
+			else if (c != '\0')
+				shortSlots[c] = ii;
+		}
+		otherShorts = new char[others];
+		otherSlots = new int[others];
+		for (int ii=0, jj=0; ii < count; ii++)
+			if (shortNameOf[ii] >= 128)
+				otherShorts[jj++] = shortNameOf[ii];
+		Arrays.sort(otherShorts);
+		for (int ii=0; ii < count; ii++)
+			if (shortNameOf[ii] >= 128)
+				otherSlots[Arrays.binarySearch(otherShorts, shortNameOf[ii])] = ii;
+
+		// build the perfect hash, with a bigger table if a few seeds don't work out
+		int longCount = 0;
+		for (String name: longNameOf)
+			if (name != null)
+				longCount++;
+		int size = Integer.highestOneBit(Math.max(1, longCount * 2 - 1));
+		for (int seed = 1; ; seed++) {
+			if (seed % 4 == 0)
+				size *= 2;
+			String[] names = new String[size];
+			int[] slots = new int[size];
+			int[] displacements = new int[Integer.highestOneBit(Math.max(1, (longCount + 3) / 4 * 2 - 1))];
+			if (place(names, slots, displacements, seed)) {
+				this.longNames = names;
+				this.longSlots = slots;
+				this.displacements = displacements;
+				this.seed = seed;
+				return;
+			}
+		}
+	}
+	/*
+	 * Hash and displace: the long names are split into buckets by hash, and then, biggest bucket first, each bucket is given
+	 * the first displacement that moves all of its names into free entries of the table.
+	 */
+	private boolean place(String[] names, int[] slots, int[] displacements, int seed) {
+		int mask = names.length - 1;
+		List<List<Integer>> buckets = new ArrayList<>();
+		for (int ii=0; ii < displacements.length; ii++)
+			buckets.add(new ArrayList<Integer>());
+		for (int ii=0; ii < longNameOf.length; ii++)
+			if (longNameOf[ii] != null)
+				buckets.get(hash(longNameOf[ii], seed) & (displacements.length - 1)).add(ii);
+		Integer[] order = new Integer[displacements.length];
+		for (int ii=0; ii < order.length; ii++)
+			order[ii] = ii;
+		Arrays.sort(order, (left, right) -> buckets.get(right).size() - buckets.get(left).size());
+		int[] placed = new int[names.length];
+		for (int bb: order) {
+			List<Integer> bucket = buckets.get(bb);
+			if (bucket.isEmpty())
+				break;
+			boolean done = false;
+			for (int dd=0; ! done && dd < names.length * 64; dd++) {
+				int count = 0;
+				for (int slot: bucket) {
+					int idx = index(hash(longNameOf[slot], seed), dd, mask);
+					if (names[idx] != null)
+						break;
+					names[idx] = longNameOf[slot];
+					slots[idx] = slot;
+					placed[count++] = idx;
+				}
+				done = (count == bucket.size());
+				if (done)
+					displacements[bb] = dd;
+				else
+					for (int ii=0; ii < count; ii++)
+						names[placed[ii]] = null;
+			}
+			if (! done)
+				return false;
+		}
+		return true;
+	}
+	// FNV-1a, seeded, with murmur3's finish so that every bit of the result depends on every character
+	private static int hash(CharSequence name, int seed) {
+		int ret = 0x811c9dc5 ^ seed * 0x9e3779b9;
+		for (int ii=0; ii < name.length(); ii++)
+			ret = (ret ^ name.charAt(ii)) * 0x01000193;
+		return mix(ret);
+	}
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		return hash ^ (hash >>> 16);
+	}
+	private static int index(int hash, int displacement, int mask) {
+		return mix(hash ^ displacement * 0x9e3779b9) & mask;
+	}
+	/* Returns the slot of the option with this long name, or -1. */
+	private int longSlot(CharSequence name) {
+		int hash = hash(name, seed);
+		int idx = index(hash, displacements[hash & (displacements.length - 1)], longNames.length - 1);
+		String found = longNames[idx];
+		return (found != null && FeSimpleArgs.contentEquals(found, name)) ? longSlots[idx] : NONE;
+	}
+
+	/** Returns the number of options (and so of slots). */
+	public int size() {
+		return shortNameOf.length;
+	}
+	/** Returns the slot of the option with this short name, or -1 if there isn't one. */
+	public int slot (char shortName) {
+		if (shortName < 128)
+			return shortSlots[shortName];
+		int idx = Arrays.binarySearch(otherShorts, shortName);
+		return (idx < 0) ? NONE : otherSlots[idx];
+	}
+	/** Returns the slot of the option with this long name (or, for a single character, short name), or -1 if there isn't one. */
+	public int slot (CharSequence name) {
+		int ret = longSlot(name);
+		return (ret == NONE && name.length() == 1) ? slot(name.charAt(0)) : ret;
+	}
+	/** Returns the short name of the option in the slot, or '\0' if it has none. */
+	public char shortName (int slot) {
+		return shortNameOf[slot];
+	}
+	/** Returns the long name of the option in the slot, or null if it has none. */
+	public String longName (int slot) {
+		return longNameOf[slot];
+	}
+
+	/**
+	 * Parses args the same way as FeSimpleArgs.parse(String), throwing an IllegalArgumentException for the first option that
+	 * isn't in this spec.
+	 */
+	public Parsed parse (String args) {
+		return parse (new CharTokens (args, 0, args.length()));
+	}
+	/**
+	 * Parses args the same way as FeSimpleArgs.parse(CharSequence) (so the values are views of args), throwing an
+	 * IllegalArgumentException for the first option that isn't in this spec.
+	 */
+	public Parsed parse (CharSequence args) {
+		return parse (new CharTokens (args, 0, args.length()));
+	}
+	/**
+	 * Parses tokens the same way as FeSimpleArgs.parse(String[]) (without @path expansion), throwing an
+	 * IllegalArgumentException for the first option that isn't in this spec.
+	 */
+	public Parsed parse (String[] tokens) {
+		return parse (new ArrayTokens (tokens, 0));
+	}
+	private Parsed parse (Tokens tokens) {
+		Parsed ret = new Parsed (this);
+		new Scanner (ret.filler()).run(tokens);
+		return ret;
+	}
+
+	/**
+	 * What was found by OptionSpec.parse: the options that were given and their values, by slot, and the parameters.
+	 */
+	public static final class Parsed {
+		private final OptionSpec spec;
+		private final long[] given;           // by slot
+		private final CharSequence[] values;  // by slot
+		public final List<String> params = new ParamList();
+		private Parsed(OptionSpec spec) {
+			this.spec = spec;
+			this.given = new long[(spec.size() + 63) >>> 6];
+			this.values = new CharSequence[spec.size()];
+		}
+		public OptionSpec spec() {
+			return spec;
+		}
+		/** Returns true if the option in the slot was given, with or without a value. */
+		public boolean has (int slot) {
+			return (given[slot >>> 6] & (1L << slot)) != 0;
+		}
+		/** Returns true if the named option was given (by either of its names), with or without a value. */
+		public boolean has (CharSequence name) {
+			int slot = spec.slot(name);
+			return slot != NONE && has(slot);
+		}
+		/** Returns the value of the option in the slot, or null if it was given without one (or not given at all). */
+		public CharSequence value (int slot) {
+			return values[slot];
+		}
+		/** Returns the value of the option in the slot as a String, or null if it was given without one (or not given at all). */
+		public String get (int slot) {
+			CharSequence value = values[slot];
+			if (value == null || value instanceof String)
+				return (String) value;
+			String ret = value.toString();
+			values[slot] = ret;
+			return ret;
+		}
+		public int paramCount() {
+			return params.size();
+		}
+		/** Returns the parameter at the given position (counting from 0). */
+		public CharSequence param (int idx) {
+			return ((ParamList) params).view(idx);
+		}
+		private void set(int slot, CharSequence value) {
+			given[slot >>> 6] |= 1L << slot;
+			values[slot] = SlicePool.copy(value);
+		}
+		private ArgVisitor filler() {
+			return new ArgVisitor() {
+				@Override
+				public void onShortFlag(char name, CharSequence value) {
+					int slot = spec.slot(name);
+					if (slot == NONE)
+						throw new IllegalArgumentException ("Unknown option \"-" + name + "\"");
+					set(slot, value);
+				}
+				@Override
+				public void onLongOption(CharSequence name, CharSequence value) {
+					int slot = spec.longSlot(name);
+					if (slot == NONE)
+						throw new IllegalArgumentException ("Unknown option \"--" + name + "\"");
+					set(slot, value);
+				}
+				@Override
+				public void onParam(CharSequence param) {
+					((ParamList) params).addView(param);
+				}
+			};
+		}
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (int ii=0; ii < values.length; ii++) {
+				if (! has(ii))
+					continue;
+				if (sb.length() > 0)
+					sb.append(", ");
+				sb.append((spec.longName(ii) != null) ? spec.longName(ii) : String.valueOf(spec.shortName(ii)));
+				if (values[ii] != null)
+					sb.append("=").append(values[ii]);
+			}
+			return "Options=[" + sb + "]; Params=" + params;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package org.ferrilidium.args;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * A caching front end for FeSimpleArgs.parse(String), for when the same few command lines are parsed over and over.
+ * Results are kept, keyed on the exact input, up to a maximum number of entries and a maximum total input length
+ * (in characters); beyond that the least recently used are evicted.  The Results handed out are unmodifiable
+ * (see Result.unmodifiable()), since every caller asking for the same input gets the same one.
+ * Input that can't be parsed isn't cached: every attempt throws, as parse(String) would.
+ *
+ * A ParseCache can be shared between threads.  Large caches are split into segments by hash, each with its own lock and
+ * its share of the limits (the shares adding up to the limits exactly), so eviction is least-recently-used within a segment.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public class ParseCache {
+	private static final int ENTRIES_PER_SEGMENT = 64;
+	private static final int MAX_SEGMENTS = 16;
+	private final FeSimpleArgs parser;
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maxEntries the most Results to keep
+	 */
+	public ParseCache(int maxEntries) {
+		this (new FeSimpleArgs(), maxEntries, Long.MAX_VALUE);
+	}
+	/**
+	 * @param parser what to parse with on a miss
+	 * @param maxEntries the most Results to keep
+	 * @param maxChars the most input, in characters, to keep Results for
+	 */
+	public ParseCache(FeSimpleArgs parser, int maxEntries, long maxChars) {
+		if (maxEntries < 1 || maxChars < 1)
+			throw new IllegalArgumentException ("maxEntries and maxChars must be positive (got " + maxEntries + ", " + maxChars + ")");
+		this.parser = parser;
+		int count = 1;
+		while (count < MAX_SEGMENTS && count * 2 * ENTRIES_PER_SEGMENT <= maxEntries && count * 2 <= maxChars)
+			count *= 2;
+		segments = new Segment[count];
+		// the shares add up to exactly the limits, the first few segments taking one more of each for the remainder
+		for (int ii=0; ii < count; ii++)
+			segments[ii] = new Segment (maxEntries / count + ((ii < maxEntries % count) ? 1 : 0), maxChars / count + ((ii < maxChars % count) ? 1 : 0));
+	}
+
+	/**
+	 * Returns the (unmodifiable) Result of parsing args, from the cache if it is there.
+	 * @param args
+	 * @return
+	 */
+	public Result parse (String args) {
+		Segment segment = segments[FeSimpleArgs.spread(args.hashCode()) & (segments.length - 1)];
+		Result ret = segment.get(args);
+		if (ret != null) {
+			hits.increment();
+			return ret;
+		}
+		misses.increment();
+		ret = parser.parse(args).unmodifiable();
+		if (args.length() > segment.maxChars)
+			return ret;
+		return segment.add(args, ret);
+	}
+
+	/** Empties the cache (the statistics are kept). */
+	public void clear() {
+		for (Segment segment: segments)
+			segment.clearAll();
+	}
+
+	public Stats stats() {
+		int entries = 0;
+		long chars = 0;
+		for (Segment segment: segments) {
+			synchronized (segment) {
+				entries += segment.size();
+				chars += segment.chars;
+			}
+		}
+		return new Stats (hits.sum(), misses.sum(), evictions.sum(), entries, chars);
+	}
+
+	/**
+	 * A snapshot of a ParseCache's hit, miss and eviction counts, and of how much it holds.
+	 */
+	public static final class Stats {
+		public final long hits;
+		public final long misses;
+		public final long evictions;
+		public final int entries;
+		public final long chars;
+		Stats(long hits, long misses, long evictions, int entries, long chars) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.entries = entries;
+			this.chars = chars;
+		}
+		/** Hits as a fraction of all lookups (0 if there haven't been any). */
+		public double hitRate() {
+			long total = hits + misses;
+			return (total == 0) ? 0 : (double) hits / total;
+		}
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", entries=" + entries + ", chars=" + chars;
+		}
+	}
+
+	/*
+	 * One lock's worth of the cache: a LinkedHashMap in access order, trimmed from the eldest end after each addition.
+	 */
+	private class Segment extends LinkedHashMap<String, Result> {
+		private static final long serialVersionUID = 1L;
+		final int maxEntries;
+		final long maxChars;
+		long chars;
+		Segment(int maxEntries, long maxChars) {
+			super(16, 0.75f, true);
+			this.maxEntries = maxEntries;
+			this.maxChars = maxChars;
+		}
+		synchronized Result get(String args) {
+			return super.get(args);
+		}
+		/* Adds a Result, unless another thread got there first, and returns whichever is now cached. */
+		synchronized Result add(String args, Result result) {
+			Result existing = super.putIfAbsent(args, result);
+			if (existing != null)
+				return existing;
+			chars += args.length();
+			Iterator<Map.Entry<String, Result>> eldest = entrySet().iterator();
+			while (size() > maxEntries || chars > maxChars) {
+				chars -= eldest.next().getKey().length();
+				eldest.remove();
+				evictions.increment();
+			}
+			return result;
+		}
+		synchronized void clearAll() {
+			super.clear();
+			chars = 0;
+		}
+	}
+}
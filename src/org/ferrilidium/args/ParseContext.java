@@ -0,0 +1,166 @@
+package org.ferrilidium.args;
+
+import org.ferrilidium.args.FeSimpleArgs.ArgVisitor;
+import org.ferrilidium.args.FeSimpleArgs.ArrayTokens;
+import org.ferrilidium.args.FeSimpleArgs.CharTokens;
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.ferrilidium.args.FeSimpleArgs.ResultBuilder;
+import org.ferrilidium.args.FeSimpleArgs.Scanner;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Everything a parse needs apart from the Result, kept so that it can be used again: for parsing many command lines, one
+ * after another, into the same Result without allocating anything once the Result has grown to fit.
+ *     ParseContext context = new ParseContext();
+ *     Result result = new Result();
+ *     for (String line: lines) {
+ *         context.parseInto(line, result);
+ *         ...
+ *     }
+ * parseInto clears the Result (see Result.clear()) and fills it in the same way as FeSimpleArgs.parse, with the same views of
+ * the input.  Only the values that are read as Strings (through Result.args and Result.params, or by calling toString() on a
+ * view) allocate anything; so do values whose parts are separated by more than a single space, which have to be copied.
+ *
+ * It can also drive an ArgVisitor (see parse(CharSequence, ArgVisitor)), for callers that don't want a Result at all.
+ *
+ * A ParseContext is not thread safe: use one per thread, such as the one from forCurrentThread().
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public class ParseContext {
+	// not ThreadLocal.withInitial(ParseContext::new), which would start up the lambda machinery just to load this class
+	private static final ThreadLocal<ParseContext> CURRENT = new ThreadLocal<ParseContext>() {
+		@Override
+		protected ParseContext initialValue() {
+			return new ParseContext();
+		}
+	};
+	private final FeSimpleArgs parser;
+	private final ResultBuilder builder = new ResultBuilder();
+	private final Scanner scanner = new Scanner (builder);
+	private final CharTokens chars = new CharTokens ("", 0, 0);
+	private final ArrayTokens array = new ArrayTokens (new String[0], 0);
+
+	public ParseContext() {
+		this (new FeSimpleArgs());
+	}
+	/**
+	 * @param parser whose settings (such as setArgFiles) to parse with
+	 */
+	public ParseContext(FeSimpleArgs parser) {
+		this.parser = parser;
+	}
+
+	/**
+	 * Returns this thread's ParseContext (which uses the default settings), creating it the first time.
+	 */
+	public static ParseContext forCurrentThread() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Clears result and parses args into it, the same way as FeSimpleArgs.parse(CharSequence).
+	 * @param args
+	 * @param result a Result from a parse, or from new Result(); not an unmodifiable one, or one with other storage
+	 * @return result
+	 */
+	public Result parseInto (CharSequence args, Result result) {
+		builder.reuse(result);
+		try {
+			parser.scan(scanner, builder, chars.reset(args, 0, args.length()), args.length());
+		} finally {
+			release();
+		}
+		return result;
+	}
+	/**
+	 * Clears result and parses tokens into it, the same way as FeSimpleArgs.parse(String[]).  Expanding @path tokens (if
+	 * the parser has that turned on) allocates, as it does for parse(String[]).
+	 * @param tokens
+	 * @param result a Result from a parse, or from new Result(); not an unmodifiable one, or one with other storage
+	 * @return result
+	 */
+	public Result parseInto (String[] tokens, Result result) {
+		builder.reuse(result);
+		try {
+			parser.scan(scanner, builder, parser.expand(array.reset(tokens, 0)), parser.inputLength(tokens));
+		} finally {
+			release();
+		}
+		return result;
+	}
+
+	/**
+	 * Parses args the same way as FeSimpleArgs.parse(CharSequence, ArgVisitor), passing what it finds to the visitor.  This
+	 * allocates nothing at all: what the visitor is given is a reused view, only good for the duration of the call.
+	 * @param args
+	 * @param visitor
+	 */
+	public void parse (CharSequence args, ArgVisitor visitor) {
+		try {
+			scanner.to(visitor).limit(parser.limits()).checkInputLength(args.length());
+			scanner.run(chars.reset(args, 0, args.length()));
+		} finally {
+			scanner.to(builder);
+			release();
+		}
+	}
+	/**
+	 * Parses tokens the same way as FeSimpleArgs.parse(String[], ArgVisitor), passing what it finds to the visitor, without
+	 * allocating anything (apart from any @path expansion).
+	 * @param tokens
+	 * @param visitor
+	 */
+	public void parse (String[] tokens, ArgVisitor visitor) {
+		try {
+			scanner.to(visitor).limit(parser.limits()).checkInputLength(parser.inputLength(tokens));
+			scanner.run(parser.expand(array.reset(tokens, 0)));
+		} finally {
+			scanner.to(builder);
+			release();
+		}
+	}
+
+	/* Parses args into a new Result, reusing everything else (for parseAll). */
+	Result parse (CharSequence args) {
+		return parse (args, 0, args.length());
+	}
+	/* The same, for len characters of text starting at off (for BulkParser). */
+	Result parse (CharSequence text, int off, int len) {
+		builder.start();
+		try {
+			parser.scan(scanner, builder, chars.reset(text, off, len), len);
+			return new Result (builder.args, builder.params);
+		} finally {
+			release();
+		}
+	}
+
+	// so that a context kept by a thread doesn't hold on to the last input or Result
+	private void release() {
+		builder.release();
+		scanner.reset();
+		chars.reset("", 0, 0);
+		array.reset(null, 0);
+	}
+}
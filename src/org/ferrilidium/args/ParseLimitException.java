@@ -0,0 +1,56 @@
+package org.ferrilidium.args;
+
+import org.ferrilidium.args.ParseLimits.Limit;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Thrown by a parse that goes over one of its ParseLimits, as soon as it does.  It is an IllegalArgumentException, like
+ * every other input a parser turns down.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public class ParseLimitException extends IllegalArgumentException {
+	private static final long serialVersionUID = 1L;
+	private final Limit limit;
+	private final int max;
+
+	/**
+	 * @param limit the one that was passed
+	 * @param max what it was set to
+	 * @param name the argument it was passed in (as it appears in the input), or null
+	 */
+	public ParseLimitException(Limit limit, int max, String name) {
+		super("Over the limit of " + max + " " + limit.description + ((name == null) ? "" : " (in \"" + name + "\")"));
+		this.limit = limit;
+		this.max = max;
+	}
+
+	/** Which limit was passed. */
+	public Limit limit() {
+		return limit;
+	}
+	/** What that limit was set to. */
+	public int max() {
+		return max;
+	}
+}
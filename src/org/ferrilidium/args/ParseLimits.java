@@ -0,0 +1,116 @@
+package org.ferrilidium.args;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Upper bounds on what a parse will take on, for input that can't be trusted: the length of the input, the number of tokens,
+ * the number of arguments, the length of a value, and the number of tokens joined onto one argument (as the "= value" of
+ * -a = value is, and as everything after an unbalanced quote in a value is).  A parser given limits (see
+ * FeSimpleArgs.setLimits) throws a ParseLimitException as soon as one is passed, so the time and memory a parse takes are
+ * bounded by them, whatever the input.
+ *     FeSimpleArgs parser = new FeSimpleArgs().setLimits(new ParseLimits()
+ *             .setMaxInputLength(64 * 1024)
+ *             .setMaxTokens(1000)
+ *             .setMaxMerges(16));
+ * Each limit is off (Integer.MAX_VALUE) until it is set.  A parse takes the limits as they are when it starts, so changing
+ * them doesn't affect one under way; they shouldn't be changed while other threads are starting parses with them.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public final class ParseLimits {
+	/** The things that can be limited, with how a ParseLimitException describes each. */
+	public enum Limit {
+		INPUT_LENGTH ("characters of input"),
+		TOKENS ("tokens"),
+		ARGS ("arguments"),
+		VALUE_LENGTH ("characters in a value"),
+		MERGES ("tokens joined onto one argument");
+
+		final String description;
+		Limit(String description) {
+			this.description = description;
+		}
+	}
+
+	private int maxInputLength = Integer.MAX_VALUE;
+	private int maxTokens = Integer.MAX_VALUE;
+	private int maxArgs = Integer.MAX_VALUE;
+	private int maxValueLength = Integer.MAX_VALUE;
+	private int maxMerges = Integer.MAX_VALUE;
+
+	/**
+	 * The most characters of input: the length of a String or CharSequence, the total length of the tokens of a String[] (and
+	 * of the tokens read from any @path files), or everything fed to an ArgStream.
+	 * @return this
+	 */
+	public ParseLimits setMaxInputLength(int max) {
+		maxInputLength = check(max);
+		return this;
+	}
+	/** The most tokens (including any read from @path files). */
+	public ParseLimits setMaxTokens(int max) {
+		maxTokens = check(max);
+		return this;
+	}
+	/** The most arguments, counting each short flag of -abc, and each time a repeated name appears. */
+	public ParseLimits setMaxArgs(int max) {
+		maxArgs = check(max);
+		return this;
+	}
+	/** The most characters in a value, as it is collected (including any quotes around it). */
+	public ParseLimits setMaxValueLength(int max) {
+		maxValueLength = check(max);
+		return this;
+	}
+	/** The most tokens joined onto one argument after its first. */
+	public ParseLimits setMaxMerges(int max) {
+		maxMerges = check(max);
+		return this;
+	}
+
+	public int maxInputLength() {
+		return maxInputLength;
+	}
+	public int maxTokens() {
+		return maxTokens;
+	}
+	public int maxArgs() {
+		return maxArgs;
+	}
+	public int maxValueLength() {
+		return maxValueLength;
+	}
+	public int maxMerges() {
+		return maxMerges;
+	}
+
+	@Override
+	public String toString() {
+		return "ParseLimits[input " + maxInputLength + ", tokens " + maxTokens + ", args " + maxArgs + ", value " + maxValueLength + ", merges " + maxMerges + "]";
+	}
+
+	private static int check(int max) {
+		if (max < 0)
+			throw new IllegalArgumentException ("A limit can't be negative (got " + max + ")");
+		return max;
+	}
+}
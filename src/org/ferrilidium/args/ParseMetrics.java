@@ -0,0 +1,168 @@
+package org.ferrilidium.args;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * A ParseListener that keeps running totals and a latency histogram, for reading (as a Snapshot) by whatever reports metrics.
+ *     ParseMetrics metrics = new ParseMetrics();
+ *     FeSimpleArgs parser = new FeSimpleArgs().setListener(metrics);
+ *     ...
+ *     ParseMetrics.Snapshot snap = metrics.snapshot();
+ *     snap.parses; snap.percentileNanos(99.9)
+ * Counting doesn't lock or allocate: the totals are LongAdders and the histogram is an array of atomic counts, so one
+ * ParseMetrics can be shared by any number of parsers and threads.
+ * The histogram is laid out the same way as an HdrHistogram: each power of two is split into 32 equal buckets, so a
+ * percentile is accurate to within about 3% of its value, over the whole range of a long, in a fixed 15KB.
+ * @author Cornelius Perkins (ccperkins at bitbucket and github)
+ */
+public class ParseMetrics implements FeSimpleArgs.ParseListener {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+	private final LongAdder parses = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder inputChars = new LongAdder();
+	private final LongAdder tokens = new LongAdder();
+	private final LongAdder args = new LongAdder();
+	private final LongAdder params = new LongAdder();
+	private final LongAdder merges = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+	@Override
+	public void parsed (int inputLength, int tokens, int args, int params, int merges, long nanos) {
+		this.parses.increment();
+		this.inputChars.add(inputLength);
+		this.tokens.add(tokens);
+		this.args.add(args);
+		this.params.add(params);
+		this.merges.add(merges);
+		record(nanos);
+	}
+	@Override
+	public void failed (int inputLength, long nanos, RuntimeException e) {
+		failures.increment();
+		inputChars.add(inputLength);
+		record(nanos);
+	}
+	private void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		histogram.incrementAndGet(bucket(nanos));
+	}
+
+	// values below SUB_COUNT have a bucket each; above that, each power of two has SUB_COUNT of them
+	static int bucket(long value) {
+		if (value < SUB_COUNT)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+	}
+	// the largest value that goes into the bucket
+	static long highestIn(int bucket) {
+		if (bucket < SUB_COUNT)
+			return bucket;
+		int shift = bucket / SUB_COUNT - 1;
+		long lowest = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * Returns the totals and histogram so far.  Parses that finish while the snapshot is being taken may be counted in some
+	 * of its numbers and not others.
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		for (int ii=0; ii < BUCKETS; ii++)
+			counts[ii] = histogram.get(ii);
+		return new Snapshot (this, counts);
+	}
+
+	/**
+	 * The totals and latency histogram at one point in time.  Latencies cover failed parses as well as successful ones.
+	 */
+	public static final class Snapshot {
+		public final long parses;
+		public final long failures;
+		public final long inputChars;
+		public final long tokens;
+		public final long args;
+		public final long params;
+		public final long merges;
+		public final long totalNanos;
+		public final long maxNanos;
+		private final long[] counts;
+		private final long count;
+		private Snapshot(ParseMetrics metrics, long[] counts) {
+			this.parses = metrics.parses.sum();
+			this.failures = metrics.failures.sum();
+			this.inputChars = metrics.inputChars.sum();
+			this.tokens = metrics.tokens.sum();
+			this.args = metrics.args.sum();
+			this.params = metrics.params.sum();
+			this.merges = metrics.merges.sum();
+			this.totalNanos = metrics.totalNanos.sum();
+			this.maxNanos = metrics.maxNanos.get();
+			this.counts = counts;
+			long sum = 0;
+			for (long cc: counts)
+				sum += cc;
+			this.count = sum;
+		}
+		public double meanNanos() {
+			return (count == 0) ? 0 : (double) totalNanos / count;
+		}
+		/**
+		 * Returns the latency that pct percent of parses took no longer than (to within the histogram's accuracy), or 0 if
+		 * there haven't been any.
+		 * @param pct from 0 to 100
+		 */
+		public long percentileNanos(double pct) {
+			if (pct < 0 || pct > 100)
+				throw new IllegalArgumentException ("Percentile must be from 0 to 100, not " + pct);
+			if (count == 0)
+				return 0;
+			long rank = Math.max(1, (long) Math.ceil(pct / 100 * count));
+			long seen = 0;
+			for (int ii=0; ii < counts.length; ii++) {
+				seen += counts[ii];
+				if (seen >= rank)
+					return Math.min(highestIn(ii), maxNanos);
+			}
+			return maxNanos;
+		}
+		@Override
+		public String toString() {
+			return "parses=" + parses + ", failures=" + failures + ", inputChars=" + inputChars + ", tokens=" + tokens
+					+ ", args=" + args + ", params=" + params + ", merges=" + merges
+					+ ", meanNanos=" + (long) meanNanos() + ", p50=" + percentileNanos(50) + ", p99=" + percentileNanos(99)
+					+ ", maxNanos=" + maxNanos;
+		}
+	}
+}
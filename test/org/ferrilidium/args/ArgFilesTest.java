@@ -0,0 +1,100 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class ArgFilesTest {
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+	private final FeSimpleArgsTest helper = new FeSimpleArgsTest();
+
+	Path write(String name, String contents) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+		return file.toPath();
+	}
+
+	@Test public void testExpandInPlace() throws IOException {
+		Path opts = write("opts", "-abc  =  Value\n--message=\"Hello there\"\n  param1 ");
+		FeSimpleArgs parser = new FeSimpleArgs().setArgFiles(new ArgFiles());
+		Result res = parser.parse(new String[] {"-d", "@" + opts, "param2"});
+		helper.assertEqual ("testExpandInPlace", res, FeSimpleArgsTest.makeResult (helper.makeMap (new String[] {"a", null, "b", null, "c", "Value", "d", null, "message", "Hello there"}), helper.makeList (new String[] {"param1", "param2"})));
+	}
+	@Test public void testOffByDefault() throws IOException {
+		Path opts = write("opts", "-a");
+		Result res = new FeSimpleArgs().parse(new String[] {"@" + opts});
+		helper.assertEqual ("testOffByDefault", res, FeSimpleArgsTest.makeResult (null, helper.makeList (new String[] {"@" + opts})));
+	}
+	@Test public void testNestedAndEscaped() throws IOException {
+		Path inner = write("inner", "--inner=1 @@literal");
+		Path outer = write("outer", "--outer=2 @" + inner + " -- @" + inner);
+		FeSimpleArgs parser = new FeSimpleArgs().setArgFiles(new ArgFiles());
+		Result res = parser.parse(new String[] {"@" + outer, "tail"});
+		helper.assertEqual ("testNestedAndEscaped", res, FeSimpleArgsTest.makeResult (helper.makeMap (new String[] {"inner", "1", "outer", "2"}), helper.makeList (new String[] {"@literal", "--inner=1", "@literal", "tail"})));
+	}
+	@Test public void testCycle() throws IOException {
+		Path one = folder.getRoot().toPath().resolve("one");
+		Path two = write("two", "-b @" + one);
+		write("one", "-a @" + two);
+		try {
+			new FeSimpleArgs().setArgFiles(new ArgFiles()).parse(new String[] {"@" + one});
+			fail ("testCycle: expected an exception");
+		} catch (IllegalArgumentException e) {
+			assertTrue (e.getMessage(), e.getMessage().startsWith("Circular @file reference"));
+		}
+	}
+	@Test public void testMissingFile() {
+		try {
+			new FeSimpleArgs().setArgFiles(new ArgFiles()).parse(new String[] {"@" + new File(folder.getRoot(), "nope")});
+			fail ("testMissingFile: expected an exception");
+		} catch (UncheckedIOException e) {
+			helper.printResult("testMissingFile: Success - " + e.getMessage());
+		}
+	}
+	@Test public void testCachedUntilChanged() throws IOException {
+		Path opts = write("opts", "-a");
+		ArgFiles argFiles = new ArgFiles();
+		Path real = opts.toRealPath();
+		ArgFiles.Contents first = argFiles.contents(real);
+		assertSame (first, argFiles.contents(real));
+		write("opts", "-ab");
+		assertNotSame (first, argFiles.contents(real));
+		Result res = new FeSimpleArgs().setArgFiles(argFiles).parse(new String[] {"@" + opts});
+		helper.assertEqual ("testCachedUntilChanged", res, FeSimpleArgsTest.makeResult (helper.makeMap (new String[] {"a", null, "b", null}), null));
+	}
+}
@@ -0,0 +1,176 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class BulkParserTest {
+	private static final FeSimpleArgs PARSER = new FeSimpleArgs();
+
+	@Test public void testNewlineDelimited() throws Exception {
+		List<String> lines = corpus(1000);
+		BulkParser bulk = new BulkParser(PARSER).setWorkers(3).setBatchSize(7).setChunkSize(64);
+		List<String> got = new ArrayList<>();
+		BulkParser.Stats stats = bulk.run(channel(String.join("\n", lines) + "\n"), (record, result) -> {
+			assertEquals (got.size(), record);
+			got.add(result.toString());
+		});
+		assertEquals (expected(lines), got);
+		assertEquals (1000, stats.records);
+		assertEquals (0, stats.malformed);
+		assertTrue (stats.bytes > 0);
+	}
+	@Test public void testNulDelimited() throws Exception {
+		List<String> lines = Collections.nCopies(3, "-a=\"one\ntwo\" pé");
+		List<String> got = new ArrayList<>();
+		new BulkParser(PARSER).setDelimiter((byte) 0).run(channel(String.join("\0", lines)), (record, result) -> got.add(result.toString()));
+		assertEquals (expected(lines), got);
+	}
+	@Test public void testLastRecordWithoutDelimiter() throws Exception {
+		List<String> got = new ArrayList<>();
+		new BulkParser(PARSER).run(channel("-a\n\n-b p"), (record, result) -> got.add(result.toString()));
+		assertEquals (expected(Arrays.asList("-a", "", "-b p")), got);
+	}
+	@Test public void testRecordLongerThanChunk() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int ii=0; ii < 500; ii++)
+			sb.append("--option").append(ii).append("=value").append(ii).append(' ');
+		List<String> lines = Arrays.asList("-x", sb.toString(), "-y");
+		List<String> got = new ArrayList<>();
+		new BulkParser(PARSER).setChunkSize(16).run(channel(String.join("\n", lines)), (record, result) -> got.add(result.toString()));
+		assertEquals (expected(lines), got);
+	}
+	@Test public void testUnordered() throws Exception {
+		List<String> lines = corpus(2000);
+		Map<Long, String> got = new ConcurrentHashMap<>();
+		new BulkParser(PARSER).setWorkers(4).setBatchSize(10).setOrdered(false)
+				.run(channel(String.join("\n", lines)), (record, result) -> got.put(record, result.toString()));
+		List<String> expected = expected(lines);
+		assertEquals (expected.size(), got.size());
+		for (int ii=0; ii < expected.size(); ii++)
+			assertEquals (expected.get(ii), got.get((long) ii));
+	}
+	@Test public void testMalformed() throws Exception {
+		List<Long> bad = new ArrayList<>();
+		BulkParser.Stats stats = new BulkParser(PARSER).setBatchSize(2).run(channel("-a\n-b=\"unbalanced\n-c\n-e=\"\n-d"), new BulkParser.Sink() {
+			@Override public void accept (long record, Result result) {}
+			@Override public void malformed (long record, IllegalArgumentException e) {
+				bad.add(record);
+			}
+		});
+		assertEquals (Arrays.asList(1L, 3L), bad);
+		assertEquals (5, stats.records);
+		assertEquals (2, stats.malformed);
+	}
+	@Test public void testSlowSinkBoundsWork() throws Exception {
+		List<String> lines = corpus(200);
+		long[] ends = new long[lines.size()];
+		for (int ii=0; ii < lines.size(); ii++)
+			ends[ii] = (ii == 0 ? 0 : ends[ii - 1]) + lines.get(ii).length() + 1;
+		long[] read = new long[1];
+		ReadableByteChannel in = channel(String.join("\n", lines));
+		ReadableByteChannel counting = new ReadableByteChannel() {
+			@Override public int read (ByteBuffer dst) throws IOException {
+				int got = in.read(dst);
+				synchronized (read) {
+					read[0] += Math.max(0, got);
+				}
+				return got;
+			}
+			@Override public boolean isOpen () {
+				return in.isOpen();
+			}
+			@Override public void close () throws IOException {
+				in.close();
+			}
+		};
+		long[] most = new long[1];
+		new BulkParser(PARSER).setWorkers(2).setQueueSize(1).setBatchSize(1).setChunkSize(32).run(counting, (record, result) -> {
+			// what has been read but not yet delivered is limited to what the queue and the workers hold, plus a chunk
+			synchronized (read) {
+				most[0] = Math.max(most[0], read[0] - ends[(int) record]);
+			}
+		});
+		assertTrue ("read ahead " + most[0], most[0] < 8 * 64);
+	}
+	@Test public void testSinkFailure() throws Exception {
+		try {
+			new BulkParser(PARSER).setBatchSize(3).run(channel(String.join("\n", corpus(100))), (record, result) -> {
+				if (record == 50)
+					throw new IllegalStateException("sink failed");
+			});
+			fail ("testSinkFailure: no exception");
+		} catch (IllegalStateException e) {
+			assertEquals ("sink failed", e.getMessage());
+		}
+	}
+	@Test public void testFile() throws Exception {
+		Path file = Files.createTempFile("BulkParserTest", ".txt");
+		try {
+			List<String> lines = corpus(100);
+			Files.write(file, lines, StandardCharsets.UTF_8);
+			List<String> got = new ArrayList<>();
+			BulkParser.Stats stats = new BulkParser(PARSER).run(file, (record, result) -> got.add(result.toString()));
+			assertEquals (expected(lines), got);
+			assertEquals (Files.size(file), stats.bytes);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static List<String> corpus(int count) {
+		List<String> ret = new ArrayList<>();
+		for (int ii=0; ii < count; ii++)
+			ret.add("-v" + (ii % 7) + " --name=\"value " + ii + "\" param" + ii + ((ii % 3 == 0) ? " -x = 10" : ""));
+		return ret;
+	}
+	private static List<String> expected(List<String> lines) {
+		List<String> ret = new ArrayList<>();
+		for (String line: lines)
+			ret.add(PARSER.parse(line).toString());
+		return ret;
+	}
+	private static ReadableByteChannel channel(String text) {
+		return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+	}
+}
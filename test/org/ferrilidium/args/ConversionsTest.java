@@ -0,0 +1,148 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class ConversionsTest {
+	private final FeSimpleArgsTest helper = new FeSimpleArgsTest();
+
+	@Test public void testNumbers() {
+		Result res = new FeSimpleArgs().parse("--port=8080 --neg=-42 --big=9223372036854775807 --ratio=0.75 -q");
+		assertEquals (8080, res.getInt("port", 0));
+		assertEquals (-42, res.getInt("neg", 0));
+		assertEquals (Long.MAX_VALUE, res.getLong("big", 0));
+		assertEquals (0.75, res.getDouble("ratio", 0), 0);
+		assertEquals (7, res.getInt("missing", 7));
+		assertEquals (7, res.getInt("q", 7));        // no value
+		assertEquals (-1L, res.getLong("missing", -1L));
+		assertEquals (1.5, res.getDouble("missing", 1.5), 0);
+		assertEquals (Long.MIN_VALUE, Conversions.toLong("x", "-9223372036854775808", 0, 20, Long.MIN_VALUE, Long.MAX_VALUE, "a long"));
+	}
+	@Test public void testBadNumbers() {
+		Result res = new FeSimpleArgs().parse("--big=2147483648 --word=abc --empty=\"\" --sign=-");
+		expectFailure (() -> res.getInt("big", 0), "The value of \"big\" is not an int: \"2147483648\"");
+		expectFailure (() -> res.getLong("word", 0), "The value of \"word\" is not a long: \"abc\"");
+		expectFailure (() -> res.getDouble("word", 0), "The value of \"word\" is not a double: \"abc\"");
+		expectFailure (() -> res.getLong("sign", 0), "The value of \"sign\" is not a long: \"-\"");
+		assertEquals (2147483648L, res.getLong("big", 0));
+	}
+	@Test public void testBooleans() {
+		Result res = new FeSimpleArgs().parse("-v --a=yes --b=OFF --c=1 --d=False --e=maybe");
+		assertTrue (res.getBoolean("v", false));
+		assertTrue (res.getBoolean("a", false));
+		assertFalse (res.getBoolean("b", true));
+		assertTrue (res.getBoolean("c", false));
+		assertFalse (res.getBoolean("d", true));
+		assertTrue (res.getBoolean("missing", true));
+		expectFailure (() -> res.getBoolean("e", false), "The value of \"e\" is not a boolean: \"maybe\"");
+	}
+	@Test public void testSizes() {
+		Result res = new FeSimpleArgs().parse("--a=10MB --b=64k --c=2GiB --d=512 --e=\"3 TB\" --f=10XB --g=-1k");
+		assertEquals (10L << 20, res.getSize("a", 0));
+		assertEquals (64L << 10, res.getSize("b", 0));
+		assertEquals (2L << 30, res.getSize("c", 0));
+		assertEquals (512, res.getSize("d", 0));
+		assertEquals (3L << 40, res.getSize("e", 0));
+		assertEquals (99, res.getSize("missing", 99));
+		expectFailure (() -> res.getSize("f", 0), "The value of \"f\" is not a size: \"10XB\"");
+		expectFailure (() -> res.getSize("g", 0), "The value of \"g\" is not a size: \"-1k\"");
+		expectFailure (() -> Conversions.toSize("h", "9223372036854775807K"), "The value of \"h\" is not a size: \"9223372036854775807K\"");
+	}
+	@Test public void testDurations() {
+		Result res = new FeSimpleArgs().parse("--a=30s --b=500ms --c=2h --d=PT1M30S --e=-5m --f=10 --g=7d --h=100us");
+		assertEquals (Duration.ofSeconds(30), res.getDuration("a", null));
+		assertEquals (Duration.ofMillis(500), res.getDuration("b", null));
+		assertEquals (Duration.ofHours(2), res.getDuration("c", null));
+		assertEquals (Duration.ofSeconds(90), res.getDuration("d", null));
+		assertEquals (Duration.ofMinutes(-5), res.getDuration("e", null));
+		assertEquals (Duration.ofDays(7), res.getDuration("g", null));
+		assertEquals (Duration.ofNanos(100000), res.getDuration("h", null));
+		assertSame (Duration.ZERO, res.getDuration("missing", Duration.ZERO));
+		expectFailure (() -> res.getDuration("f", null), "The value of \"f\" is not a duration: \"10\"");
+	}
+	@Test public void testLists() {
+		Result res = new FeSimpleArgs().parse("--hosts=\"a, b,,c \" --path=/bin:/usr/bin --one=x");
+		assertEquals (Arrays.asList("a", "b", "c"), res.getList("hosts", null));
+		assertEquals (Arrays.asList("/bin", "/usr/bin"), res.getList("path", ':', null));
+		assertEquals (Arrays.asList("/bin:/usr/bin"), res.getList("path", null));
+		assertEquals (Collections.singletonList("x"), res.getList("one", null));
+		assertEquals (Collections.emptyList(), res.getList("missing", Collections.<String>emptyList()));
+		try {
+			res.getList("hosts", null).add("d");
+			fail ("testLists: list could be changed");
+		} catch (UnsupportedOperationException e) {
+			helper.printResult("testLists: Success");
+		}
+	}
+	@Test public void testConvertedOnce() {
+		Result res = new FeSimpleArgs().parse("--hosts=a,b --port=80");
+		List<String> hosts = res.getList("hosts", null);
+		assertSame (hosts, res.getList("hosts", null));
+		assertEquals (80, res.getInt("port", 0));
+		assertEquals (80L, res.getLong("port", 0));
+		res.args.put("hosts", "c");            // a new value is converted again
+		assertEquals (Collections.singletonList("c"), res.getList("hosts", null));
+		res.args.put("port", "81");
+		assertEquals (81, res.getInt("port", 0));
+	}
+	@Test public void testReusedResult() {
+		ParseContext context = new ParseContext();
+		Result res = context.parseInto("--port=80 --hosts=a", new Result());
+		assertEquals (80, res.getInt("port", 0));
+		assertEquals (Collections.singletonList("a"), res.getList("hosts", null));
+		context.parseInto("--port=81 --hosts=b", res);
+		assertEquals (81, res.getInt("port", 0));
+		assertEquals (Collections.singletonList("b"), res.getList("hosts", null));
+	}
+	@Test public void testManyNames() {
+		StringBuilder sb = new StringBuilder();
+		for (int ii=0; ii < 100; ii++)
+			sb.append(" --opt").append(ii).append('=').append(ii);
+		Result res = new FeSimpleArgs().parse(sb.toString());
+		for (int round=0; round < 2; round++)
+			for (int ii=0; ii < 100; ii++)
+				assertEquals (ii, res.getInt("opt" + ii, -1));
+	}
+
+	private void expectFailure(Runnable call, String message) {
+		try {
+			call.run();
+			fail ("expected: " + message);
+		} catch (IllegalArgumentException e) {
+			assertEquals (message, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.ferrilidium.args.FeSimpleArgs.ArgVisitor;
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Holds every way of parsing to ReferenceArgs, the parser as it was originally written, over random input: random strings
+ * (built from the pieces the subtle cases are made of, such as quotes spanning tokens, whitespace around =, clusters ending
+ * in a value, repeated names, separators, and a few characters outside ASCII) and random String[] splits.  Each entry point
+ * must give the same arguments and parameters as the reference, or fail with the same message.
+ * The seed and number of inputs can be set with -Ddifferential.seed=... and -Ddifferential.iterations=...; a failure
+ * reports the seed and the input, so it can be repeated.
+ */
+public class DifferentialTest {
+	private static final long SEED = Long.getLong("differential.seed", 42);
+	private static final int ITERATIONS = Integer.getInteger("differential.iterations", 20000);
+	private static final String[] PIECES = {
+		"-", "--", "-a", "-abc", "-x=", "--long", "--long=", "=", " =", "= ", " = ", "x", "foo", "a=b", "==", "bar=baz",
+		"\"", "\"a b\"", "\"\"", "-n=\"x", "y\"", "\" z", "-c =", " =v", "-ab=1", "-ab = \"1 2\"", "--m = \"q  r\"", "p",
+		" ", "  ", "\t", "é", "-é", "--naïve=ü",
+	};
+	private static final char[] CHARS = { '-', '-', '=', '"', ' ', ' ', '\t', 'a', 'b', 'c', 'é' };
+
+	private final FeSimpleArgs parser = new FeSimpleArgs();
+	private final FeSimpleArgs pooled = new FeSimpleArgs().setNamePool(new NamePool());
+	private final FeSimpleArgs parallel = new FeSimpleArgs().setParallelThreshold(0);
+	private final ParseContext context = new ParseContext();
+	private final Result reused = new Result();
+	private final ParseCache cache = new ParseCache(64);
+
+	@Test public void testStrings() throws Exception {
+		Random random = new Random(SEED);
+		List<String> batch = new ArrayList<>();
+		List<String> expectedBatch = new ArrayList<>();
+		for (int ii=0; ii < ITERATIONS; ii++) {
+			String line = randomString(random);
+			String expected = describe(() -> describe(new ReferenceArgs().parse(line)));
+			String what = "seed " + SEED + ", input [" + line + "]";
+			assertEquals (what + ", tokenize", Arrays.toString(tokens(() -> new ReferenceArgs().tokenize(line))), Arrays.toString(tokens(() -> parser.tokenize(line))));
+			check (what, "parse(String)", expected, () -> describe(parser.parse(line)));
+			check (what, "parse(CharSequence)", expected, () -> describe(parser.parse(new StringBuilder(line))));
+			check (what, "parse(char[])", expected, () -> describe(parser.parse(("<<" + line + ">>").toCharArray(), 2, line.length())));
+			check (what, "parseLazily", expected, () -> describeLazily(parser.parseLazily(line), random));
+			check (what, "parseInto", expected, () -> describe(context.parseInto(line, reused)));
+			check (what, "parse(CharSequence, ArgVisitor)", expected, () -> visit(visitor -> context.parse(line, visitor)));
+			check (what, "stream", expected, () -> visit(visitor -> feed(parser.stream(visitor), line, random)));
+			check (what, "parse(Reader, ArgVisitor)", expected, () -> visit(visitor -> parser.parse(new StringReader(line), visitor)));
+			check (what, "ParseCache", expected, () -> describe(cache.parse(line)));
+			check (what, "freeze", expected, () -> describe(parser.parse(line).freeze()));
+			check (what, "NamePool", expected, () -> describe(pooled.parse(line)));
+			check (what, "parallel tokens", expected, () -> describe(parallel.parse(line)));
+			if (! expected.startsWith("!") && line.indexOf('\n') < 0) {
+				batch.add(line);
+				expectedBatch.add(expected);
+			}
+		}
+		List<String> got = new ArrayList<>();
+		for (Result result: parser.parseAll(batch))
+			got.add(describe(result));
+		checkBatch ("parseAll", batch, expectedBatch, got);
+		got.clear();
+		new BulkParser(parser).setBatchSize(100).run(Channels.newChannel(new ByteArrayInputStream((String.join("\n", batch) + "\n").getBytes(StandardCharsets.UTF_8))),
+				(record, result) -> got.add(describe(result)));
+		checkBatch ("BulkParser", batch, expectedBatch, got);
+	}
+
+	@Test public void testSplits() throws Exception {
+		Random random = new Random(SEED);
+		for (int ii=0; ii < ITERATIONS; ii++) {
+			String[] tokens = new String[random.nextInt(6)];
+			for (int jj=0; jj < tokens.length; jj++)
+				tokens[jj] = randomString(random);
+			String expected = describe(() -> describe(new ReferenceArgs().parse(tokens.clone())));
+			String what = "seed " + SEED + ", input " + Arrays.toString(tokens);
+			check (what, "parse(String[])", expected, () -> describe(parser.parse(tokens.clone())));
+			check (what, "parseLazily(String[])", expected, () -> describeLazily(parser.parseLazily(tokens.clone()), random));
+			check (what, "parseInto(String[])", expected, () -> describe(context.parseInto(tokens.clone(), reused)));
+			check (what, "parse(String[], ArgVisitor)", expected, () -> visit(visitor -> context.parse(tokens.clone(), visitor)));
+			byte[] argv = join(tokens, '\0');
+			check (what, "parse(ByteBuffer)", expected, () -> describe(parser.parse(ByteBuffer.wrap(argv))));
+			check (what, "parse(direct ByteBuffer)", expected, () -> describe(parser.parse((ByteBuffer) ByteBuffer.allocateDirect(argv.length).put(argv).flip())));
+			check (what, "parse(byte[])", expected, () -> describe(parser.parse(join(tokens, '\n'), 0, argv.length, (byte) '\n')));
+		}
+	}
+
+	private static void checkBatch(String path, List<String> lines, List<String> expected, List<String> got) {
+		for (int ii=0; ii < expected.size(); ii++)
+			if (ii >= got.size() || ! expected.get(ii).equals(got.get(ii)))
+				fail ("seed " + SEED + ", input [" + lines.get(ii) + "], " + path + ": expected " + expected.get(ii) + " but got " + ((ii < got.size()) ? got.get(ii) : "nothing"));
+		assertEquals ("seed " + SEED + ", " + path, expected.size(), got.size());
+	}
+
+	// a string made of random pieces, with the odd run of random characters
+	private static String randomString(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int count = random.nextInt(9);
+		for (int ii=0; ii < count; ii++) {
+			if (random.nextInt(6) == 0) {
+				for (int jj = random.nextInt(4); jj >= 0; jj--)
+					sb.append(CHARS[random.nextInt(CHARS.length)]);
+			} else {
+				sb.append(PIECES[random.nextInt(PIECES.length)]);
+			}
+			if (random.nextBoolean())
+				sb.append(' ');
+		}
+		return sb.toString();
+	}
+	private static byte[] join(String[] tokens, char delimiter) {
+		StringBuilder sb = new StringBuilder();
+		for (String token: tokens)
+			sb.append(token).append(delimiter);
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private interface Parse {
+		String run() throws Exception;
+	}
+	private static void check(String what, String path, String expected, Parse parse) {
+		String got;
+		try {
+			got = parse.run();
+		} catch (IllegalArgumentException e) {
+			got = "!" + e.getMessage();
+		} catch (Exception e) {
+			throw new AssertionError (what + ", " + path + ": " + e, e);
+		}
+		if (! expected.equals(got) && ! (expected.equals(CRASHED) && got.startsWith("!")))
+			fail (what + ", " + path + ": expected " + expected + " but got " + got);
+	}
+	/*
+	 * What the reference does, or "!" and its message if it rejects the input.  Some bad input (such as an unbalanced quote
+	 * at the end of a token) crashes the reference with an index out of bounds, where the parser now throws an
+	 * IllegalArgumentException; for those, any IllegalArgumentException matches.
+	 */
+	private static String describe(Supplier<String> reference) {
+		try {
+			return reference.get();
+		} catch (IllegalArgumentException e) {
+			return "!" + e.getMessage();
+		} catch (IndexOutOfBoundsException e) {
+			return CRASHED;
+		}
+	}
+	private static final String CRASHED = "!!";
+	private static String[] tokens(Supplier<String[]> tokenize) {
+		try {
+			return tokenize.get();
+		} catch (RuntimeException e) {
+			return new String[] {"!"};
+		}
+	}
+	private static String describe(Result result) {
+		return describe(result.args, result.params);
+	}
+	private static String describe(ReferenceArgs.Result result) {
+		return describe(result.args, result.params);
+	}
+	private static String describe(Map<String, String> args, List<String> params) {
+		return new TreeMap<>(args) + " " + params;
+	}
+	// asks a lazy Result a question or two first, so that it is part way through its scan when it is read as a whole
+	private static String describeLazily(Result result, Random random) {
+		result.contains(random.nextBoolean() ? "a" : "long");
+		if (random.nextBoolean() && result.paramCount() > 0)
+			result.param(0);
+		return describe(result);
+	}
+
+	private interface VisitorParse {
+		void run(ArgVisitor visitor) throws IOException;
+	}
+	private static String visit(VisitorParse parse) throws IOException {
+		Map<String, String> args = new TreeMap<>();
+		List<String> params = new ArrayList<>();
+		parse.run(new ArgVisitor() {
+			@Override public void onShortFlag(char name, CharSequence value) { args.put(String.valueOf(name), (value == null) ? null : value.toString()); }
+			@Override public void onLongOption(CharSequence name, CharSequence value) { args.put(name.toString(), (value == null) ? null : value.toString()); }
+			@Override public void onParam(CharSequence param) { params.add(param.toString()); }
+		});
+		return describe(args, params);
+	}
+	private static void feed(FeSimpleArgs.ArgStream stream, String line, Random random) {
+		for (int ii=0; ii < line.length(); ) {
+			int next = Math.min(line.length(), ii + random.nextInt(5));
+			stream.feed(line.subSequence(ii, next));
+			ii = next;
+		}
+		stream.finish();
+	}
+}
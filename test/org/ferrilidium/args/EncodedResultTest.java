@@ -0,0 +1,162 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class EncodedResultTest {
+	private final FeSimpleArgs parser = new FeSimpleArgs();
+
+	@Test public void testRoundTrip() {
+		Result result = parser.parse("-abc=fred --name=\"Fred Flintstone\" --flag p1 -- -x p2");
+		EncodedResult encoded = EncodedResult.read(EncodedResult.encode(result));
+		assertEquals (result.args, encoded.toResult().args);
+		assertEquals (result.params, encoded.toResult().params);
+		assertEquals (result.args.size(), encoded.argCount());
+		assertEquals (3, encoded.paramCount());
+		assertEquals ("Fred Flintstone", encoded.get("name"));
+		assertEquals ("fred", encoded.get(new StringBuilder ("c")));
+		assertTrue (encoded.contains("flag"));
+		assertNull (encoded.get("flag"));
+		assertFalse (encoded.contains("nothing"));
+		assertFalse (encoded.contains("fla"));
+		assertFalse (encoded.contains("flags"));
+		assertEquals ("-x", encoded.param(1));
+	}
+	@Test public void testEmpty() {
+		EncodedResult encoded = EncodedResult.read(EncodedResult.encode(new Result()));
+		assertEquals (0, encoded.argCount());
+		assertEquals (0, encoded.paramCount());
+		assertFalse (encoded.contains(""));
+		assertEquals (24, encoded.length());
+	}
+	@Test public void testStringsAsTheyWere() {
+		Map<String, String> args = new HashMap<>();
+		args.put("café", "日本");
+		args.put("😀", "lone \ud83d and \ude00");
+		args.put("", "");
+		Result result = new Result (args, Arrays.asList("x", null, "\u0000", "café"));
+		EncodedResult encoded = EncodedResult.read(EncodedResult.encode(result));
+		assertEquals (args, encoded.toResult().args);
+		assertEquals (result.params, encoded.toResult().params);
+		assertEquals ("lone \ud83d and \ude00", encoded.get("😀"));
+		assertNull (encoded.param(1));
+	}
+	@Test public void testStringsAreShared() {
+		byte[] once = EncodedResult.encode(parser.parse("--a-long-name=a-long-value"));
+		byte[] twice = EncodedResult.encode(parser.parse("--a-long-name=a-long-value a-long-value a-long-name"));
+		assertEquals (once.length + 8, twice.length);
+	}
+	@Test public void testReadFromPosition() {
+		byte[] bytes = EncodedResult.encode(parser.parse("--user=bob"));
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 10);
+		buffer.position(7);
+		buffer.put(bytes);
+		buffer.position(7);
+		assertEquals ("bob", EncodedResult.read(buffer).get("user"));
+		assertEquals (7, buffer.position());
+	}
+	@Test public void testMap() throws IOException {
+		Path file = Files.createTempFile("encoded", ".bin");
+		try {
+			Result result = parser.parse("--user=bob -v job1 job2");
+			EncodedResult.write(result, file);
+			EncodedResult encoded = EncodedResult.map(file);
+			assertEquals ("bob", encoded.get("user"));
+			assertEquals ("job2", encoded.param(1));
+			assertEquals (result.args, encoded.toResult().args);
+		} finally {
+			Files.delete(file);
+		}
+	}
+	@Test public void testDamaged() {
+		byte[] bytes = EncodedResult.encode(parser.parse("--user=bob p"));
+		bad (Arrays.copyOf(bytes, 10), "Not an encoded Result");
+		bad (Arrays.copyOf(bytes, bytes.length - 1), "The encoded Result is damaged or cut short");
+		byte[] version = bytes.clone();
+		version[4] = 2;
+		bad (version, "Can't read version 2 of an encoded Result (only version 1)");
+		byte[] magic = bytes.clone();
+		magic[0] = 'X';
+		bad (magic, "Not an encoded Result");
+		byte[] offset = bytes.clone();
+		offset[offset.length - 14] = 0x7f;    // in the string offsets
+		try {
+			EncodedResult encoded = EncodedResult.read(offset);
+			encoded.toResult();
+			encoded.get("user");
+		} catch (IllegalArgumentException e) {
+			assertEquals ("The encoded Result is damaged or cut short", e.getMessage());
+		}
+	}
+	@Test public void testRandom() {
+		Random random = new Random (23);
+		char[] chars = { '-', '-', '=', '"', ' ', 'a', 'b', 'c', 'é', '中' };
+		for (int round=0; round < 2000; round++) {
+			StringBuilder sb = new StringBuilder();
+			for (int ii = random.nextInt(40); ii > 0; ii--)
+				sb.append(chars[random.nextInt(chars.length)]);
+			Result result;
+			try {
+				result = parser.parse(sb.toString());
+			} catch (IllegalArgumentException e) {
+				continue;
+			}
+			byte[] bytes = EncodedResult.encode(result);
+			EncodedResult encoded = EncodedResult.read(bytes);
+			assertEquals (sb.toString(), result.args, encoded.toResult().args);
+			assertEquals (sb.toString(), result.params, encoded.toResult().params);
+			for (String name: result.args.keySet()) {
+				assertTrue (encoded.contains(name));
+				assertEquals (result.args.get(name), encoded.get(name));
+			}
+			assertArrayEquals (bytes, EncodedResult.encode(encoded.toResult()));
+		}
+	}
+
+	private static void bad(byte[] bytes, String message) {
+		try {
+			EncodedResult.read(bytes);
+			fail ("read " + Arrays.toString(bytes));
+		} catch (IllegalArgumentException e) {
+			assertEquals (message, e.getMessage());
+		}
+	}
+}
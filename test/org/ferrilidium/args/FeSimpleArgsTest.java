@@ -1,12 +1,26 @@
 package org.ferrilidium.args;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.ferrilidium.args.FeSimpleArgs.ParseState;
@@ -68,6 +82,420 @@ public class FeSimpleArgsTest {
 		testParse (cliAsString, expected);
 	}
 	
+	@Test public void testParseFromCharSequence() {
+		FeSimpleArgs parser = new FeSimpleArgs();
+		FeSimpleArgs.Result expected = makeResult (makeMap (new String[] {"a", null, "b", null, "c", "fred", "d", null, "e", null, "f", null, "GHI", null}), makeList (new String[] {"param1", "param2", "param3"}));
+		FeSimpleArgs.Result res = parser.parse(new StringBuilder("-def param1 --GHI -a param2 -b -c=fred -- param3"));
+		assertEqual ("testParseFromCharSequence", res, expected);
+	}
+	@Test public void testParseFromCharArrayRange() {
+		FeSimpleArgs parser = new FeSimpleArgs();
+		char[] buf = "xx-abc  =  Value --n=\"foo bar\" param1yy".toCharArray();
+		FeSimpleArgs.Result expected = makeResult (makeMap (new String[] {"a", null, "b", null, "c", "Value", "n", "foo bar"}), makeList (new String[] {"param1"}));
+		FeSimpleArgs.Result res = parser.parse(buf, 2, buf.length - 4);
+		assertEqual ("testParseFromCharArrayRange", res, expected);
+		try {
+			parser.parse(buf, 2, buf.length);
+			fail ("testParseFromCharArrayRange: expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			printResult("testParseFromCharArrayRange: Success - " + e.getMessage());
+		}
+	}
+	// Results are views of the parsed characters, which only become Strings when asked for
+	@Test public void testResultViews() {
+		FeSimpleArgs parser = new FeSimpleArgs();
+		char[] buf = "--name=\"multi part value\" -ab=\"x  y\" -- param1".toCharArray();
+		FeSimpleArgs.Result res = parser.parse(buf, 0, buf.length);
+		assertTrue (res.contains("name"));
+		assertTrue (res.contains(new StringBuilder("a")));
+		assertFalse (res.contains("param1"));
+		assertNull (res.get("a"));
+		assertFalse (res.get("name") instanceof String);
+		assertEquals (16, res.get("name").length());
+		// the views read through to the buffer until they are turned into Strings
+		buf[8] = 'M';
+		assertEquals ('M', res.get("name").charAt(0));
+		assertEquals ("Multi part value", res.args.get("name"));
+		buf[8] = 'm';
+		assertEquals ("Multi part value", res.args.get("name"));
+		assertEquals ("Multi part value", res.get("name").toString());
+		assertEquals ("x y", res.get("b").toString());
+		assertEquals (1, res.paramCount());
+		assertEquals ("param1", res.param(0).toString());
+	}
+	// The parsed args and params still behave as an ordinary Map and List
+	@Test public void testResultCollectionsAreMutable() {
+		FeSimpleArgs parser = new FeSimpleArgs();
+		FeSimpleArgs.Result res = parser.parse("-abc=1 --long=2 p1 p2");
+		res.args.put("d", "4");
+		res.args.put("a", "0");
+		assertEquals ("1", res.args.remove("c"));
+		res.params.add(0, "p0");
+		res.params.remove("p2");
+		assertEqual ("testResultCollectionsAreMutable", res, makeResult (makeMap (new String[] {"a", "0", "b", null, "d", "4", "long", "2"}), makeList (new String[] {"p0", "p1"})));
+		for (java.util.Iterator<String> it = res.args.keySet().iterator(); it.hasNext(); )
+			if (it.next().length() == 1)
+				it.remove();
+		assertEqual ("testResultCollectionsAreMutable", res, makeResult (makeMap (new String[] {"long", "2"}), makeList (new String[] {"p0", "p1"})));
+		Map<String,String> many = new HashMap<>();
+		for (int ii=0; ii < 1000; ii++)
+			many.put("opt" + ii, (ii % 2 == 0) ? null : "v" + ii);
+		res.args.clear();
+		res.args.putAll(many);
+		assertTrue (mapsMatch (res.args, many));
+		assertEquals (many, res.args);
+	}
+
+	// Short flags are kept apart from long names (see ArgMap), which mustn't show through the Map
+	@Test public void testShortFlagStorage() {
+		FeSimpleArgs parser = new FeSimpleArgs();
+		FeSimpleArgs.Result res = parser.parse("-zy -\u00e9=acute -a=1 -~ --bee=long -b=2 -B");
+		assertEqual ("testShortFlagStorage", res, makeResult (makeMap (new String[] {"z", null, "y", null, "\u00e9", "acute", "a", "1", "~", null, "b", "2", "B", null, "bee", "long"}), null));
+		assertTrue (res.contains("~"));
+		assertEquals ("2", res.get("b").toString());
+		assertEquals ("acute", res.get("\u00e9").toString());
+		assertEquals ("1", res.args.remove("a"));
+		assertNull (res.args.put("c", "3"));
+		assertEquals ("2", res.args.put("b", "two"));
+		assertNull (res.args.put("A", null));
+		assertEqual ("testShortFlagStorage", res, makeResult (makeMap (new String[] {"z", null, "y", null, "\u00e9", "acute", "c", "3", "~", null, "b", "two", "A", null, "B", null, "bee", "long"}), null));
+		for (Map.Entry<String,String> entry: res.args.entrySet())
+			if (entry.getValue() == null)
+				entry.setValue(entry.getKey());
+		assertEqual ("testShortFlagStorage", res, makeResult (makeMap (new String[] {"z", "z", "y", "y", "\u00e9", "acute", "c", "3", "~", "~", "b", "two", "A", "A", "B", "B", "bee", "long"}), null));
+	}
+
+	// Names are never null, so the args map turns a null key away rather than storing it
+	@Test public void testArgsNullKey() {
+		FeSimpleArgs.Result res = new FeSimpleArgs().parse("-a --bee=1");
+		try {
+			res.args.put(null, "x");
+			fail ("testArgsNullKey: put(null) accepted");
+		} catch (NullPointerException e) {
+			assertEquals ("key", e.getMessage());
+		}
+		Map<String, String> withNull = new HashMap<>();
+		withNull.put(null, "x");
+		try {
+			res.args.putAll(withNull);
+			fail ("testArgsNullKey: putAll with a null key accepted");
+		} catch (NullPointerException e) {
+			assertEquals ("key", e.getMessage());
+		}
+		assertNull (res.args.get(null));
+		assertFalse (res.args.containsKey(null));
+		assertNull (res.args.remove(null));
+		assertEquals (2, res.args.size());
+	}
+
+	// Streaming: input can be split anywhere, even inside quotes or between a name and its "= value"
+	@Test public void testStreamSplitAnywhere() {
+		String cli = "-def param1 --GHI  =  \"Hello there\" -a param2 -b -c=fred -n=\"foo bar baz\" -- param3 \"-x y\"";
+		FeSimpleArgs parser = new FeSimpleArgs();
+		FeSimpleArgs.Result expected = parser.parse(cli);
+		for (int chunk=1; chunk <= cli.length(); chunk++) {
+			Collector collector = new Collector();
+			FeSimpleArgs.ArgStream stream = parser.stream(collector);
+			for (int ii=0; ii < cli.length(); ii += chunk)
+				stream.feed(cli.substring(ii, Math.min(cli.length(), ii + chunk)));
+			stream.finish();
+			assertEqual ("testStreamSplitAnywhere(" + chunk + ")", collector.result(), expected);
+			assertEquals (1, collector.separators);
+		}
+	}
+	@Test public void testStreamUnmatchedQuote() {
+		String cli = "-a \"b c -d";
+		Collector collector = new Collector();
+		new FeSimpleArgs().stream(collector).feed(cli).finish();
+		assertEqual ("testStreamUnmatchedQuote", collector.result(), new FeSimpleArgs().parse(cli));
+	}
+	@Test public void testParseReader() throws IOException {
+		StringBuilder sb = new StringBuilder("-v --out = \"some dir\" --");
+		for (int ii=0; ii < 100000; ii++)
+			sb.append(" file").append(ii);
+		final int[] count = new int[1];
+		final Map<String,String> args = new HashMap<>();
+		new FeSimpleArgs().parse(new StringReader(sb.toString()), new FeSimpleArgs.ArgVisitor() {
+			@Override public void onShortFlag(char name, CharSequence value) { args.put(String.valueOf(name), null); }
+			@Override public void onLongOption(CharSequence name, CharSequence value) { args.put(name.toString(), value.toString()); }
+			@Override public void onParam(CharSequence param) {
+				if (! param.toString().equals("file" + count[0]++))
+					fail ("testParseReader: got " + param + " for param " + (count[0]-1));
+			}
+		});
+		assertEquals (100000, count[0]);
+		assertTrue (mapsMatch (args, makeMap (new String[] {"v", null, "out", "some dir"})));
+	}
+	@Test public void testParseChannel() throws IOException {
+		String cli = "--greeting=\"gr\u00fc\u00df dich\" -\u00e9 -- \u20ac100";
+		byte[] bytes = cli.getBytes(StandardCharsets.UTF_8);
+		Collector collector = new Collector();
+		new FeSimpleArgs().parse(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8, collector);
+		assertEqual ("testParseChannel", collector.result(), makeResult (makeMap (new String[] {"greeting", "gr\u00fc\u00df dich", "\u00e9", null}), makeList (new String[] {"\u20ac100"})));
+	}
+	@Test public void testParseLazily() {
+		FeSimpleArgs parser = new FeSimpleArgs();
+		for (String line: batch(20)) {
+			assertEqual ("testParseLazily: " + line, parser.parseLazily(line), parser.parse(line));
+			assertEqual ("testParseLazily (tokens): " + line, parser.parseLazily(line.split(" ")), parser.parse(line.split(" ")));
+		}
+		Result lazy = parser.parseLazily("-a=1 p1 --long=x -a=2 p2");
+		assertEquals ("p1", lazy.param(0).toString());
+		assertTrue (lazy.contains("long"));
+		assertEquals ("2", lazy.get("a").toString());    // the last one, not the first
+		assertEquals ("p2", lazy.param(1).toString());
+		assertEquals (2, lazy.paramCount());
+		assertEqual ("testParseLazily", lazy, parser.parse("-a=1 p1 --long=x -a=2 p2"));
+	}
+	@Test public void testParseLazilyStopsEarly() {
+		// a lone "-" is an error, but it isn't reached by the first two questions
+		Result lazy = new FeSimpleArgs().parseLazily(new String[] {"--help", "p1", "-v", "-", "p2"});
+		assertTrue (lazy.contains("help"));
+		assertEquals ("p1", lazy.param(0).toString());
+		assertTrue (lazy.contains("v"));
+		for (int ii=0; ii < 2; ii++) {
+			try {
+				lazy.contains("version");
+				fail ("testParseLazilyStopsEarly: no exception");
+			} catch (IllegalArgumentException e) {
+				assertEquals ("Missing argument name in \"-\"", e.getMessage());
+			}
+		}
+		try {
+			lazy.args.size();
+			fail ("testParseLazilyStopsEarly: no exception from args");
+		} catch (IllegalArgumentException e) {
+			printResult("testParseLazilyStopsEarly: Success");
+		}
+	}
+	@Test public void testParseLazilyThroughCollections() {
+		Result lazy = new FeSimpleArgs().parseLazily("-a p1 --b=c -- p2");
+		assertEquals (makeList (new String[] {"p1", "p2"}), lazy.params);
+		lazy = new FeSimpleArgs().parseLazily("-a p1 --b=c -- p2");
+		assertEquals ("c", lazy.args.get("b"));
+		lazy = new FeSimpleArgs().parseLazily("-a p1 --b=c -- p2");
+		Result frozen = lazy.unmodifiable();
+		assertEqual ("testParseLazilyThroughCollections", frozen, new FeSimpleArgs().parse("-a p1 --b=c -- p2"));
+		lazy = new FeSimpleArgs().parseLazily("-a p1 --b=c -- p2");
+		assertTrue (lazy.contains("a"));
+		new ParseContext().parseInto("-z", lazy);
+		assertEqual ("testParseLazilyThroughCollections (reused)", lazy, new FeSimpleArgs().parse("-z"));
+	}
+	@Test public void testParseAll() {
+		List<String> lines = batch(5000);
+		FeSimpleArgs parser = new FeSimpleArgs();
+		List<Result> results = parser.parseAll(lines);
+		assertEquals (lines.size(), results.size());
+		for (int ii=0; ii < lines.size(); ii++)
+			assertEqual ("testParseAll: " + lines.get(ii), results.get(ii), parser.parse(lines.get(ii)));
+		List<Result> streamed = parser.parseAll(lines.stream());
+		for (int ii=0; ii < lines.size(); ii++)
+			assertEqual ("testParseAll (stream): " + lines.get(ii), streamed.get(ii), results.get(ii));
+	}
+	@Test public void testParseAllToConsumer() {
+		List<String> lines = batch(3000);
+		FeSimpleArgs parser = new FeSimpleArgs();
+		Result[] byIndex = new Result[lines.size()];
+		parser.parseAll(lines, (result, idx) -> byIndex[idx] = result);
+		List<Result> inOrder = new ArrayList<>();
+		parser.parseAll(lines.stream(), inOrder::add);
+		for (int ii=0; ii < lines.size(); ii++) {
+			assertEqual ("testParseAllToConsumer: " + lines.get(ii), byIndex[ii], parser.parse(lines.get(ii)));
+			assertEqual ("testParseAllToConsumer (stream): " + lines.get(ii), inOrder.get(ii), byIndex[ii]);
+		}
+	}
+	@Test public void testParseAllBadLine() {
+		List<String> lines = batch(1000);
+		lines.set(700, "-a=\"unbalanced");
+		try {
+			new FeSimpleArgs().parseAll(lines);
+			fail ("testParseAllBadLine: no exception");
+		} catch (IllegalArgumentException e) {
+			assertTrue (e.getMessage(), e.getMessage().startsWith("Line 700: "));
+		}
+	}
+	private List<String> batch(int count) {
+		List<String> ret = new ArrayList<>();
+		for (int ii=0; ii < count; ii++)
+			ret.add("-v" + (ii % 7) + " --line=" + ii + " -o = \"out " + ii + "\" p" + ii);
+		return ret;
+	}
+	@Test public void testParseToVisitor() {
+		FeSimpleArgs parser = new FeSimpleArgs();
+		for (String line: batch(10)) {
+			Collector collector = new Collector();
+			parser.parse(line, collector);
+			assertEqual ("testParseToVisitor: " + line, collector.result(), parser.parse(line));
+			collector = new Collector();
+			parser.parse(line.split(" "), collector);
+			assertEqual ("testParseToVisitor (tokens): " + line, collector.result(), parser.parse(line.split(" ")));
+		}
+		Collector collector = new Collector();
+		parser.parse(new StringBuilder("-a -- -b -- c"), collector);
+		assertEquals (1, collector.separators);
+		assertEqual ("testParseToVisitor", collector.result(), makeResult (makeMap (new String[] {"a", null}), makeList (new String[] {"-b", "--", "c"})));
+	}
+	@Test public void testParseBytes() {
+		String[] argv = {"java", "-Xmx=2g", "--name", "=", "caf\u00e9 cr\u00e8me", "", "-v", "--", "\u20ac100"};
+		byte[] cmdline = (String.join("\0", argv) + "\0").getBytes(StandardCharsets.UTF_8);
+		FeSimpleArgs parser = new FeSimpleArgs();
+		Result expected = parser.parse(argv);
+		assertEqual ("testParseBytes (heap)", parser.parse(ByteBuffer.wrap(cmdline)), expected);
+		ByteBuffer direct = ByteBuffer.allocateDirect(cmdline.length + 4);
+		direct.put(new byte[] {1, 2}).put(cmdline).flip();
+		direct.position(2);
+		Result res = parser.parse(direct);
+		assertEqual ("testParseBytes (direct)", res, expected);
+		assertEquals (2, direct.position());
+		byte[] lines = ("xx-a=1\n--b\np1\n\ntail").getBytes(StandardCharsets.UTF_8);
+		assertEqual ("testParseBytes (newlines)", parser.parse(lines, 2, lines.length - 2, (byte) '\n'), parser.parse(new String[] {"-a=1", "--b", "p1", "", "tail"}));
+		assertEqual ("testParseBytes (empty)", parser.parse(new byte[0], 0, 0, (byte) 0), parser.parse(new String[0]));
+	}
+	@Test public void testParseBytesDecodesLazily() {
+		byte[] cmdline = "--name=value\0p1\0".getBytes(StandardCharsets.UTF_8);
+		Result res = new FeSimpleArgs().parse(ByteBuffer.wrap(cmdline));
+		CharSequence value = res.get("name");
+		assertFalse (value instanceof String);
+		cmdline[7] = 'V';    // the views see the bytes as they are when read
+		assertEquals ("Value", value.toString());
+		assertEquals ("p1", res.params.get(0));
+	}
+	@Test public void testParallelTokens() {
+		Random random = new Random (5);
+		char[] chars = { '"', ' ', ' ', 'a', 'b', '\t', '=', '-' };
+		for (int round=0; round < 2000; round++) {
+			StringBuilder sb = new StringBuilder();
+			for (int ii = random.nextInt(30); ii > 0; ii--)
+				sb.append(chars[random.nextInt(chars.length)]);
+			String text = sb.toString();
+			List<String> expected = spans(new FeSimpleArgs.CharTokens (text, 0, text.length()));
+			for (int chunk=1; chunk <= text.length() + 1; chunk++)
+				assertEquals ("[" + text + "] in chunks of " + chunk, expected, spans(new FeSimpleArgs.ParallelTokens (text, chunk)));
+		}
+	}
+	@Test public void testParallelParse() {
+		StringBuilder sb = new StringBuilder ("-a = \"b c\" --d=e --");
+		for (int ii=0; ii < 20000; ii++)
+			sb.append((ii % 100 == 0) ? " \"quoted file " : " /some/file").append(ii).append((ii % 100 == 0) ? "\"" : "");
+		String text = sb.toString();
+		Result expected = new FeSimpleArgs().setParallelThreshold(Integer.MAX_VALUE).parse(text);
+		Result got = new FeSimpleArgs().setParallelThreshold(1000).parse(text);
+		assertEquals (expected.args, got.args);
+		assertEquals (expected.params, got.params);
+		assertEquals ("quoted file 100", got.params.get(100));
+		assertEquals (20000, got.params.size());
+	}
+	// Leaving the threshold at its default mustn't load the ForkJoin classes for an input far too short to use them, so check
+	// what a fresh JVM loads for its first parse
+	@Test public void testSmallParseLeavesThePoolAlone() throws Exception {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process process = new ProcessBuilder (java, "-verbose:class", "-cp", System.getProperty("java.class.path"), FirstParse.class.getName())
+				.redirectErrorStream(true).start();
+		List<String> loaded = new ArrayList<>();
+		boolean parsing = false;
+		try (BufferedReader in = new BufferedReader (new InputStreamReader (process.getInputStream(), StandardCharsets.UTF_8))) {
+			for (String line; (line = in.readLine()) != null; ) {
+				if (line.equals(FirstParse.START))
+					parsing = true;
+				else if (line.equals(FirstParse.END))
+					parsing = false;
+				else if (parsing && line.contains("java.util.concurrent.ForkJoin"))
+					loaded.add(line);
+			}
+		}
+		assertEquals (0, process.waitFor());
+		assertEquals (new ArrayList<String>(), loaded);
+	}
+	public static class FirstParse {
+		static final String START = "first-parse-start";
+		static final String END = "first-parse-end";
+		public static void main(String[] args) {
+			System.out.println(START);
+			Result result = new FeSimpleArgs().parse("-abc --name = \"Fred Flintstone\" param1");
+			System.out.println(END);
+			if (! result.contains("name"))
+				System.exit(1);
+		}
+	}
+	private static List<String> spans(FeSimpleArgs.Tokens tokens) {
+		List<String> ret = new ArrayList<>();
+		while (tokens.next())
+			ret.add(tokens.start + "-" + tokens.end);
+		return ret;
+	}
+	@Test public void testFreeze() {
+		String line = "-ab=1 --verbose --name = \"Fred Flintstone\" p1 -- -p2";
+		Result res = new FeSimpleArgs().parse(line);
+		Result frozen = res.freeze();
+		assertEqual ("testFreeze", frozen, res);
+		assertEquals (res.toString(), frozen.toString());
+		assertTrue (frozen.contains(new StringBuilder("verbose")));
+		assertEquals ("Fred Flintstone", frozen.get(new StringBuilder("name")).toString());
+		assertEquals ("1", frozen.get("b").toString());
+		assertNull (frozen.get("a"));
+		assertNull (frozen.get("missing"));
+		assertFalse (frozen.contains("missing"));
+		assertEquals ("-p2", frozen.param(1).toString());
+		assertEquals (1, frozen.getInt("b", 0));
+		assertTrue (frozen == frozen.freeze());
+		assertTrue (frozen.args.keySet().contains("verbose"));
+		try {
+			frozen.args.put("x", "y");
+			fail ("testFreeze: args can be changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			frozen.params.add("x");
+			fail ("testFreeze: params can be changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			new ParseContext().parseInto("", frozen);
+			fail ("testFreeze: a frozen Result can be reused");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	@Test public void testFreezeSharesNames() {
+		NamePool names = new NamePool();
+		Result first = new FeSimpleArgs().parse("--verbose -v p").freeze(names);
+		Result second = new FeSimpleArgs().parse(new String[] {"-v", "--verbose"}).freeze(names);
+		Result empty = new FeSimpleArgs().parse("").freeze(names);
+		assertTrue (key(first, "verbose") == key(second, "verbose"));
+		assertTrue (key(first, "v") == key(second, "v"));
+		assertEquals (0, empty.args.size());
+		assertEquals (0, empty.params.size());
+	}
+	@Test public void testParseWithNamePool() {
+		FeSimpleArgs parser = new FeSimpleArgs().setNamePool(new NamePool());
+		Result first = parser.parse("--output=a --verbose");
+		Result second = parser.parse("--verbose --output = b");
+		assertTrue (key(first, "output") == key(second, "output"));
+		assertTrue (key(first, "verbose") == key(second, "verbose"));
+		Result reused = new ParseContext(parser).parseInto("--output=c", new Result());
+		assertTrue (key(first, "output") == key(reused, "output"));
+		assertEquals ("c", reused.args.get("output"));
+	}
+	private static String key(Result res, String name) {
+		for (String key: res.args.keySet())
+			if (key.equals(name))
+				return key;
+		return null;
+	}
+	/* Builds a Result from what a visitor is given, copying everything since the CharSequences are only good during the call. */
+	static class Collector implements FeSimpleArgs.ArgVisitor {
+		final Map<String,String> args = new HashMap<>();
+		final List<String> params = new ArrayList<>();
+		int separators;
+		@Override public void onShortFlag(char name, CharSequence value) { args.put(String.valueOf(name), (value == null) ? null : value.toString()); }
+		@Override public void onLongOption(CharSequence name, CharSequence value) { args.put(name.toString(), (value == null) ? null : value.toString()); }
+		@Override public void onParam(CharSequence param) { params.add(param.toString()); }
+		@Override public void onSeparator() { separators++; }
+		Result result() { return makeResult (args, params); }
+	}
+
 	void testParse(String args, FeSimpleArgs.Result expected) {
 		FeSimpleArgs parser = new FeSimpleArgs();
 		FeSimpleArgs.Result res = parser.parse(args);
@@ -0,0 +1,170 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class IncrementalParseTest {
+	private static final String[] PIECES = { "-a", "--bee", "=", " = ", "\"", "x y", "-- ", "p", "-cd", "=\"v w\"", "  ", "--e=f" };
+	private final FeSimpleArgsTest helper = new FeSimpleArgsTest();
+
+	@Test public void testEdit() {
+		IncrementalParse line = new IncrementalParse();
+		Result result = line.parse("--user=bob -v p1");
+		assertSame (result, line.edit(7, 3, "alice"));
+		assertEquals ("--user=alice -v p1", line.line());
+		assertEquals ("alice", result.args.get("user"));
+		same (line);
+	}
+	@Test public void testTyping() {
+		String text = "-a = \"Fred Flintstone\" --name=x p1 -- -b \"c d\" --e";
+		IncrementalParse line = new IncrementalParse();
+		line.parse("");
+		for (int ii=0; ii < text.length(); ii++) {
+			edit (line, ii, 0, text.substring(ii, ii+1));
+		}
+		assertEquals (text, line.line());
+		for (int ii=text.length(); ii > 0; ii--)
+			edit (line, ii-1, 1, "");
+		assertEquals (0, line.result().args.size());
+		assertEquals (0, line.result().params.size());
+	}
+	@Test public void testJoinsOntoEarlierArgument() {
+		IncrementalParse line = new IncrementalParse();
+		line.parse("-a b");
+		assertEquals (null, line.result().args.get("a"));
+		edit (line, 2, 0, "= ");
+		assertEquals ("b", line.result().args.get("a"));
+		assertEquals (0, line.result().params.size());
+	}
+	@Test public void testQuoteFindsPartnerBeforeEdit() {
+		IncrementalParse line = new IncrementalParse();
+		line.parse("p0 \"one two three");
+		assertEquals (4, line.result().params.size());
+		edit (line, line.line().length(), 0, "\"");
+		assertEquals ("one two three", line.result().params.get(1));
+	}
+	@Test public void testSeparator() {
+		IncrementalParse line = new IncrementalParse();
+		line.parse("p -a --b=c -d");
+		edit (line, 2, 0, "-- ");
+		assertEquals (0, line.result().args.size());
+		edit (line, 2, 3, "");
+		assertEquals (3, line.result().args.size());
+	}
+	@Test public void testLastOneWins() {
+		IncrementalParse line = new IncrementalParse();
+		line.parse("-a=1 -a=2 -a=3");
+		edit (line, 10, 4, "");
+		assertEquals ("2", line.result().args.get("a"));
+		edit (line, 0, 0, "-a=0 ");
+		assertEquals ("2", line.result().args.get("a"));
+		edit (line, line.line().length(), 0, " -a=4");
+		assertEquals ("4", line.result().args.get("a"));
+	}
+	@Test public void testFailedEdit() {
+		IncrementalParse line = new IncrementalParse();
+		line.parse("-a=b p");
+		try {
+			line.edit(3, 0, "\"");
+			fail ("testFailedEdit: [-a=\"b p] parsed");
+		} catch (IllegalArgumentException e) {
+			assertEquals ("Unbalanced quote in the value of \"-a\"", e.getMessage());
+		}
+		assertEquals ("b", line.result().args.get("a"));
+		edit (line, 5, 0, "\"");
+		assertEquals ("-a=\"b\" p", line.line());
+		assertEquals ("b", line.result().args.get("a"));
+	}
+	@Test(expected=IndexOutOfBoundsException.class) public void testEditOutsideLine() {
+		new IncrementalParse().edit(1, 0, "x");
+	}
+	@Test public void testRandomEdits() {
+		long seed = Long.getLong("differential.seed", System.nanoTime());
+		Random random = new Random (seed);
+		for (int round=0; round < 300; round++) {
+			IncrementalParse line = new IncrementalParse();
+			String text = randomLine(random);
+			try {
+				line.parse(text);
+			} catch (IllegalArgumentException e) {
+				// checked by the first edit
+			}
+			for (int ii=0; ii < 40; ii++) {
+				text = line.line();
+				int offset = random.nextInt(text.length() + 1);
+				int deleted = random.nextBoolean() ? 0 : random.nextInt(Math.min(text.length() - offset, 6) + 1);
+				String inserted = random.nextInt(3) == 0 ? "" : PIECES[random.nextInt(PIECES.length)];
+				String desc = "seed " + seed + ": [" + text + "] edit(" + offset + ", " + deleted + ", [" + inserted + "])";
+				String expectedError = null;
+				Result expected = null;
+				try {
+					expected = new FeSimpleArgs().parse(text.substring(0, offset) + inserted + text.substring(offset + deleted));
+				} catch (IllegalArgumentException e) {
+					expectedError = e.getMessage();
+				}
+				try {
+					Result got = line.edit(offset, deleted, inserted);
+					if (expectedError != null)
+						fail (desc + " parsed, but parse threw " + expectedError);
+					assertEquals (desc, expected.args, got.args);
+					assertEquals (desc, expected.params, got.params);
+				} catch (IllegalArgumentException e) {
+					assertEquals (desc, expectedError, e.getMessage());
+				}
+			}
+		}
+	}
+
+	private static String randomLine(Random random) {
+		StringBuilder sb = new StringBuilder();
+		for (int ii = random.nextInt(12); ii > 0; ii--)
+			sb.append(PIECES[random.nextInt(PIECES.length)]).append(random.nextBoolean() ? " " : "");
+		return sb.toString();
+	}
+	// the edit gives the same as parsing the edited line, or fails the same way (as typing "-x" does after the "-")
+	private void edit(IncrementalParse line, int offset, int deleted, String inserted) {
+		try {
+			line.edit(offset, deleted, inserted);
+		} catch (IllegalArgumentException e) {
+			try {
+				new FeSimpleArgs().parse(line.line());
+				fail ("[" + line.line() + "] parsed, but the edit threw " + e.getMessage());
+			} catch (IllegalArgumentException expected) {
+				assertEquals (expected.getMessage(), e.getMessage());
+			}
+			return;
+		}
+		same (line);
+	}
+	private void same(IncrementalParse line) {
+		helper.assertEqual ("[" + line.line() + "]", line.result(), new FeSimpleArgs().parse(line.line()));
+	}
+}
@@ -0,0 +1,167 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class LayeredTest {
+	private static final ConfigLayer ENV = ConfigLayer.fromEnvironment("APP_", env("APP_PORT", "9000", "APP_LOG_LEVEL", "debug", "OTHER", "x", "APP_", "empty"));
+	private static final ConfigLayer FILE = ConfigLayer.of("file", env("port", "8000", "host", "example.com", "timeout", "30s", "log-level", "info", "tags", "a, b"));
+
+	@Test public void testOrder() {
+		Layered config = new FeSimpleArgs().parse("--host=localhost -v").layered(ENV, FILE);
+		assertEquals ("localhost", config.get("host").toString());
+		assertEquals ("9000", config.get("port").toString());
+		assertEquals ("debug", config.get("log-level").toString());
+		assertEquals ("30s", config.get("timeout").toString());
+		assertNull (config.get("v"));
+		assertNull (config.get("missing"));
+		assertTrue (config.contains("v"));
+		assertTrue (config.contains("timeout"));
+		assertFalse (config.contains("missing"));
+		assertFalse (config.contains("other"));
+		assertEquals (Layered.ARGS, config.source("host"));
+		assertEquals (Layered.ARGS, config.source("v"));
+		assertEquals ("env", config.source("port"));
+		assertEquals ("file", config.source("timeout"));
+		assertNull (config.source("missing"));
+	}
+	@Test public void testTypedGetters() {
+		Layered config = new FeSimpleArgs().parse("-v --port=1234").layered(ENV, FILE);
+		assertEquals (1234, config.getInt("port", 0));
+		assertEquals (Duration.ofSeconds(30), config.getDuration("timeout", null));
+		assertEquals (Arrays.asList("a", "b"), config.getList("tags", null));
+		assertTrue (config.getBoolean("v", false));
+		assertFalse (config.getBoolean("quiet", false));
+		assertEquals (7, config.getLong("missing", 7));
+		try {
+			config.getInt("host", 0);
+			fail ("testTypedGetters: no exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals ("The value of \"host\" is not an int: \"example.com\"", e.getMessage());
+		}
+	}
+	@Test public void testArgsShowThrough() {
+		Result result = new FeSimpleArgs().parse("");
+		Layered config = result.layered(FILE);
+		assertEquals ("8000", config.get("port").toString());
+		result.args.put("port", "1");
+		assertEquals ("1", config.get("port").toString());
+		result.args.remove("port");
+		assertEquals ("8000", config.get("port").toString());
+	}
+	@Test public void testLookupsAreKept() {
+		Layered config = new FeSimpleArgs().parse("").layered(ENV, FILE);
+		CharSequence first = config.get(new StringBuilder("host"));
+		assertSame (first, config.get("host"));
+		for (int ii=0; ii < 100; ii++)
+			assertNull (config.get("missing" + ii));
+		assertEquals ("example.com", config.get("host").toString());
+		assertEquals (1, config.resolvedCount());
+	}
+	// Names no layer holds aren't kept, so looking up arbitrary names can't grow a long-lived Layered
+	@Test public void testMissesAreNotKept() {
+		Layered config = new FeSimpleArgs().parse("").layered(ENV, FILE);
+		for (int ii=0; ii < 10000; ii++) {
+			assertFalse (config.contains("missing" + ii));
+			assertNull (config.source("missing" + ii));
+		}
+		assertEquals (0, config.resolvedCount());
+		assertEquals ("9000", config.get("port").toString());
+		assertFalse (config.contains("missing0"));
+		assertEquals (1, config.resolvedCount());
+	}
+	@Test public void testSharedLayers() throws Exception {
+		Thread[] threads = new Thread[4];
+		boolean[] ok = new boolean[threads.length];
+		for (int ii=0; ii < threads.length; ii++) {
+			int which = ii;
+			threads[ii] = new Thread(() -> {
+				boolean good = true;
+				for (int jj=0; jj < 1000; jj++) {
+					Layered config = new FeSimpleArgs().parse("--n=" + jj).layered(ENV, FILE);
+					good &= config.getInt("n", -1) == jj && config.getInt("port", 0) == 9000 && "info".equals(FILE.get("log-level"));
+				}
+				ok[which] = good;
+			});
+			threads[ii].start();
+		}
+		for (int ii=0; ii < threads.length; ii++) {
+			threads[ii].join();
+			assertTrue (ok[ii]);
+		}
+	}
+	@Test public void testProperties() throws Exception {
+		Properties defaults = new Properties();
+		defaults.setProperty("a", "1");
+		Properties props = new Properties(defaults);
+		props.setProperty("b", "2");
+		ConfigLayer layer = ConfigLayer.fromProperties("props", props);
+		assertEquals (2, layer.size());
+		assertEquals ("1", layer.get("a"));
+		assertEquals ("2", layer.get("b"));
+
+		Path file = Files.createTempFile("LayeredTest", ".properties");
+		try {
+			Files.write(file, "name = café\nflag\n".getBytes(StandardCharsets.UTF_8));
+			ConfigLayer loaded = ConfigLayer.load(file);
+			assertEquals (file.toString(), loaded.name());
+			assertEquals ("café", loaded.get("name"));
+			assertEquals ("", loaded.get("flag"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	@Test public void testNullValues() {
+		Map<String, String> entries = new HashMap<>();
+		entries.put("flag", null);
+		ConfigLayer layer = ConfigLayer.of("flags", entries);
+		assertTrue (layer.contains("flag"));
+		assertNull (layer.get("flag"));
+		assertTrue (new FeSimpleArgs().parse("").layered(layer).getBoolean("flag", false));
+	}
+
+	private static Map<String, String> env(String... pairs) {
+		Map<String, String> ret = new HashMap<>();
+		for (int ii=0; ii < pairs.length; ii += 2)
+			ret.put(pairs[ii], pairs[ii+1]);
+		return ret;
+	}
+}
@@ -0,0 +1,137 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class NameIndexTest {
+	private final NameIndex index = NameIndex.of("verbose", "version", "user", "verb", "x", "user");
+
+	@Test public void testWithPrefix() {
+		assertEquals (Arrays.asList("verb", "verbose", "version"), index.withPrefix("ver"));
+		assertEquals (Arrays.asList("verb", "verbose"), index.withPrefix("verb"));
+		assertEquals (Collections.emptyList(), index.withPrefix("vx"));
+		assertEquals (Arrays.asList("user", "verb", "verbose", "version", "x"), index.withPrefix(""));
+		assertEquals (5, index.size());
+		assertEquals (3, index.count("v"));
+		assertEquals (0, index.count("verbosely"));
+	}
+	@Test public void testComplete() {
+		assertEquals ("verbose", index.complete("verbo"));
+		assertEquals ("verb", index.complete("verb"));    // a name itself, though it starts verbose too
+		assertEquals ("user", index.complete("u"));
+		assertNull (index.complete("ver"));
+		assertNull (index.complete("z"));
+		assertTrue (index.isAmbiguous("ver"));
+		assertFalse (index.isAmbiguous("verb"));
+		assertFalse (index.isAmbiguous("vers"));
+		assertTrue (index.contains("x"));
+		assertFalse (index.contains("ve"));
+	}
+	@Test public void testCommonPrefix() {
+		assertEquals ("ver", index.commonPrefix("v"));
+		assertEquals ("verb", index.commonPrefix("verb"));
+		assertEquals ("version", index.commonPrefix("vers"));
+		assertEquals ("user", index.commonPrefix("us"));
+		assertNull (index.commonPrefix("q"));
+	}
+	@Test public void testResolve() {
+		assertEquals ("version", index.resolve("vers"));
+		assertNull (index.resolve("quiet"));
+		try {
+			index.resolve("ver");
+			fail ("testResolve: ver resolved");
+		} catch (IllegalArgumentException e) {
+			assertEquals ("Ambiguous argument name \"ver\" (could be verb, verbose, version)", e.getMessage());
+		}
+	}
+	@Test public void testFromResults() {
+		FeSimpleArgs parser = new FeSimpleArgs();
+		NameIndex index = NameIndex.fromResults(Arrays.asList(parser.parse("--alpha -b --=x"), parser.parse("--alpine=1")), "beta");
+		assertEquals (Arrays.asList("alpha", "alpine", "b", "beta"), index.names());
+	}
+	@Test public void testParseAbbreviations() {
+		FeSimpleArgs parser = new FeSimpleArgs().setAbbreviations(index);
+		Result result = parser.parse("--verbo --vers=2 --us=bob --quiet -v p1");
+		assertEquals ("2", result.args.get("version"));
+		assertEquals ("bob", result.args.get("user"));
+		assertTrue (result.contains("verbose"));
+		assertTrue (result.contains("quiet"));
+		assertTrue (result.contains("v"));              // a short flag, which isn't an abbreviation
+		assertEquals (5, result.args.size());
+		assertEquals ("2", parser.parseLazily("--vers=2").args.get("version"));
+		assertEquals ("2", new ParseContext (parser).parseInto("--vers=2", new Result()).args.get("version"));
+		try {
+			parser.parse("--ver=1");
+			fail ("testParseAbbreviations: --ver parsed");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	// The empty name of --=x is a prefix of every name, but not an abbreviation of any
+	@Test public void testEmptyNameIsNotAnAbbreviation() {
+		Result result = new FeSimpleArgs().setAbbreviations(index).parse("--=x --verbo");
+		assertEquals ("x", result.args.get(""));
+		assertTrue (result.contains("verbose"));
+		assertEquals (2, result.args.size());
+		result = new FeSimpleArgs().setAbbreviations(NameIndex.of("only")).parse("--=x");
+		assertEquals ("x", result.args.get(""));
+		assertFalse (result.contains("only"));
+	}
+	@Test public void testAgainstScan() {
+		Random random = new Random (11);
+		TreeSet<String> names = new TreeSet<>();
+		for (int ii=0; ii < 500; ii++)
+			names.add(word(random, 1 + random.nextInt(8)));
+		NameIndex index = NameIndex.of(names);
+		for (int ii=0; ii < 5000; ii++) {
+			String prefix = word(random, random.nextInt(5));
+			TreeSet<String> expected = new TreeSet<>();
+			for (String name: names) {
+				if (name.startsWith(prefix))
+					expected.add(name);
+			}
+			assertEquals (prefix, Arrays.asList(expected.toArray()), index.withPrefix(prefix));
+			String complete = names.contains(prefix) ? prefix : (expected.size() == 1) ? expected.first() : null;
+			assertEquals (prefix, complete, index.complete(prefix));
+		}
+	}
+	private static String word(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int ii=0; ii < length; ii++)
+			sb.append((char) ('a' + random.nextInt(4)));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,87 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class NamePoolTest {
+	@Test public void testIntern() {
+		NamePool pool = new NamePool();
+		String verbose = pool.intern(new StringBuilder("verbose"));
+		assertEquals ("verbose", verbose);
+		assertSame (verbose, pool.intern("verbose"));
+		assertSame (verbose, pool.intern(FeSimpleArgs.slice("--verbose", 2, 9)));
+		assertEquals (1, pool.size());
+	}
+	@Test public void testShortNames() {
+		NamePool pool = new NamePool();
+		assertSame (pool.intern("v"), new NamePool().intern(new StringBuilder("v")));
+		assertSame (NamePool.shortName('x'), pool.intern("x"));
+		assertEquals (0, pool.size());
+		assertEquals ("é", pool.intern("é"));
+		assertEquals (1, pool.size());
+	}
+	@Test public void testGrows() {
+		NamePool pool = new NamePool();
+		String[] names = new String[1000];
+		for (int ii=0; ii < names.length; ii++)
+			names[ii] = pool.intern("name" + ii);
+		for (int ii=0; ii < names.length; ii++)
+			assertSame (names[ii], pool.intern(new StringBuilder("name").append(ii)));
+		assertEquals (1000, pool.size());
+	}
+	@Test public void testLimit() {
+		NamePool pool = new NamePool(2);
+		String a = pool.intern("aa");
+		pool.intern("bb");
+		String c = pool.intern(new StringBuilder("cc"));
+		assertEquals ("cc", c);
+		assertNotSame (c, pool.intern(new StringBuilder("cc")));
+		assertSame (a, pool.intern("aa"));
+		assertEquals (2, pool.size());
+	}
+	@Test public void testShared() throws Exception {
+		NamePool pool = new NamePool();
+		String[][] got = new String[4][];
+		Thread[] threads = new Thread[got.length];
+		for (int ii=0; ii < threads.length; ii++) {
+			int which = ii;
+			threads[ii] = new Thread(() -> {
+				got[which] = new String[500];
+				for (int jj=0; jj < 500; jj++)
+					got[which][jj] = pool.intern("option-" + jj);
+			});
+			threads[ii].start();
+		}
+		for (Thread thread: threads)
+			thread.join();
+		for (int ii=1; ii < got.length; ii++)
+			for (int jj=0; jj < 500; jj++)
+				assertSame (got[0][jj], got[ii][jj]);
+		assertEquals (500, pool.size());
+	}
+}
@@ -0,0 +1,163 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class OptionSpecTest {
+	private final FeSimpleArgsTest helper = new FeSimpleArgsTest();
+	private static final int VERBOSE = 0, PORT = 1, X = 2, NAME = 3;
+	private final OptionSpec spec = OptionSpec.builder()
+			.option('v', "verbose")
+			.option("port")
+			.option('x')
+			.option('n', "name")
+			.build();
+
+	@Test public void testSlots() {
+		assertEquals (4, spec.size());
+		assertEquals (VERBOSE, spec.slot('v'));
+		assertEquals (VERBOSE, spec.slot("verbose"));
+		assertEquals (PORT, spec.slot("port"));
+		assertEquals (X, spec.slot('x'));
+		assertEquals (X, spec.slot("x"));
+		assertEquals (NAME, spec.slot(new StringBuilder("name")));
+		assertEquals (-1, spec.slot("nope"));
+		assertEquals (-1, spec.slot('p'));
+		assertEquals ('\0', spec.shortName(PORT));
+		assertEquals ("verbose", spec.longName(VERBOSE));
+		assertNull (spec.longName(X));
+	}
+	@Test public void testParse() {
+		OptionSpec.Parsed parsed = spec.parse("p1 -vx --port = 8080 -n=\"Fred Flintstone\" -- --unknown -z");
+		assertTrue (parsed.has(VERBOSE));
+		assertTrue (parsed.has(X));
+		assertTrue (parsed.has("port"));
+		assertTrue (parsed.has("n"));
+		assertNull (parsed.value(VERBOSE));
+		assertEquals ("8080", parsed.get(PORT));
+		assertEquals ("Fred Flintstone", parsed.value(NAME).toString());
+		assertEquals (Arrays.asList("p1", "--unknown", "-z"), parsed.params);
+		assertEquals ("-z", parsed.param(2).toString());
+		assertEquals ("Options=[verbose, port=8080, x, name=Fred Flintstone]; Params=[p1, --unknown, -z]", parsed.toString());
+	}
+	@Test public void testEitherNameFillsTheSlot() {
+		OptionSpec.Parsed parsed = spec.parse(new String[] {"--name=first", "-n=second"});
+		assertEquals ("second", parsed.get(NAME));
+		parsed = spec.parse("-n=first --name=second");
+		assertEquals ("second", parsed.get(NAME));
+		assertFalse (parsed.has(PORT));
+		assertFalse (parsed.has("nope"));
+	}
+	@Test public void testUnknownOptions() {
+		expectUnknown ("--port=1 --prt=2", "Unknown option \"--prt\"");
+		expectUnknown ("-vq", "Unknown option \"-q\"");
+		expectUnknown ("--v", "Unknown option \"--v\"");     // v is only a short name
+		expectUnknown ("-port", "Unknown option \"-p\"");
+	}
+	@Test public void testSameAsParse() {
+		OptionSpec.Builder builder = OptionSpec.builder();
+		for (char c = 'a'; c <= 'z'; c++)
+			builder.option(c);
+		builder.option("long").option("other").option('é');
+		OptionSpec letters = builder.build();
+		String[] lines = {
+			"-abc=fred --long -- param1",
+			"p1 -a   =   \"Fred Flintstone\" --other=foo bar p2",
+			"-é=acute --long=  two  parts -c p3 -- -d --e=f",
+			"-a=1 -a=2 --long=x --long=y p4",
+		};
+		for (String line: lines) {
+			Result expected = new FeSimpleArgs().parse(line);
+			OptionSpec.Parsed parsed = letters.parse(line);
+			for (Map.Entry<String, String> arg: expected.args.entrySet()) {
+				assertTrue (line + ": " + arg.getKey(), parsed.has(arg.getKey()));
+				assertEquals (line + ": " + arg.getKey(), arg.getValue(), parsed.get(letters.slot(arg.getKey())));
+			}
+			int given = 0;
+			for (int ii=0; ii < letters.size(); ii++)
+				if (parsed.has(ii))
+					given++;
+			assertEquals (line, expected.args.size(), given);
+			assertEquals (line, expected.params, parsed.params);
+		}
+	}
+	@Test public void testManyLongNames() {
+		OptionSpec.Builder builder = OptionSpec.builder();
+		for (int ii=0; ii < 1000; ii++)
+			builder.option("option-" + ii);
+		OptionSpec big = builder.build();
+		for (int ii=0; ii < 1000; ii++)
+			assertEquals (ii, big.slot("option-" + ii));
+		assertEquals (-1, big.slot("option-1000"));
+		assertEquals ("7", big.parse("--option-999=7").get(999));
+		assertEquals (-1, OptionSpec.builder().build().slot("anything"));
+	}
+	@Test public void testDuplicateNames() {
+		try {
+			OptionSpec.builder().option('v', "verbose").option("verbose");
+			fail ("testDuplicateNames: --verbose added twice");
+		} catch (IllegalArgumentException e) {
+			helper.printResult("testDuplicateNames: Success");
+		}
+		try {
+			OptionSpec.builder().option('v').option('v', "version");
+			fail ("testDuplicateNames: -v added twice");
+		} catch (IllegalArgumentException e) {
+			helper.printResult("testDuplicateNames: Success");
+		}
+	}
+	// An option with no name could never be given, so it mustn't take a slot
+	@Test public void testNoName() {
+		OptionSpec.Builder builder = OptionSpec.builder();
+		for (Runnable add: new Runnable[] { () -> builder.option('\0'), () -> builder.option((String) null), () -> builder.option('\0', null) }) {
+			try {
+				add.run();
+				fail ("testNoName: an option with no name added");
+			} catch (IllegalArgumentException e) {
+				assertEquals ("An option needs a short name or a long name", e.getMessage());
+			}
+		}
+		assertEquals (0, builder.build().size());
+		assertEquals (0, OptionSpec.builder().option('\0', "port").build().slot("port"));
+	}
+
+	private void expectUnknown(String line, String message) {
+		try {
+			spec.parse(line);
+			fail ("expected: " + message);
+		} catch (IllegalArgumentException e) {
+			assertEquals (message, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class ParseCacheTest {
+	private final FeSimpleArgsTest helper = new FeSimpleArgsTest();
+
+	@Test public void testHitsAndMisses() {
+		ParseCache cache = new ParseCache(10);
+		Result first = cache.parse("-abc=fred --GHI -- param1");
+		helper.assertEqual ("testHitsAndMisses", first, new FeSimpleArgs().parse("-abc=fred --GHI -- param1"));
+		assertSame (first, cache.parse("-abc=fred --GHI -- param1"));
+		assertNotSame (first, cache.parse("-abc=fred --GHI --  param1"));
+		ParseCache.Stats stats = cache.stats();
+		assertEquals (1, stats.hits);
+		assertEquals (2, stats.misses);
+		assertEquals (2, stats.entries);
+		assertEquals (0, stats.evictions);
+		assertEquals (1.0 / 3, stats.hitRate(), 1e-9);
+	}
+	@Test public void testResultsAreUnmodifiable() {
+		Result res = new ParseCache(10).parse("-a=1 p1");
+		try {
+			res.args.put("b", "2");
+			fail ("testResultsAreUnmodifiable: args could be changed");
+		} catch (UnsupportedOperationException e) {
+			helper.printResult("testResultsAreUnmodifiable: Success");
+		}
+		try {
+			res.params.clear();
+			fail ("testResultsAreUnmodifiable: params could be changed");
+		} catch (UnsupportedOperationException e) {
+			helper.printResult("testResultsAreUnmodifiable: Success");
+		}
+		assertEquals ("1", res.get("a").toString());
+		assertEquals ("p1", res.param(0).toString());
+		assertSame (res, res.unmodifiable());
+	}
+	@Test public void testLeastRecentlyUsedIsEvicted() {
+		ParseCache cache = new ParseCache(2);
+		Result one = cache.parse("-one");
+		cache.parse("-two");
+		assertSame (one, cache.parse("-one"));
+		cache.parse("-three");    // evicts -two, which is older than -one now
+		assertSame (one, cache.parse("-one"));
+		assertEquals (4, cache.stats().misses + cache.stats().evictions);
+		cache.parse("-two");
+		assertEquals (4, cache.stats().misses);
+		assertEquals (2, cache.stats().evictions);
+		assertEquals (2, cache.stats().entries);
+	}
+	@Test public void testCharLimit() {
+		ParseCache cache = new ParseCache(new FeSimpleArgs(), 100, 10);
+		cache.parse("-abcd");
+		cache.parse("-efgh");
+		assertEquals (10, cache.stats().chars);
+		cache.parse("-ij");
+		assertEquals (2, cache.stats().entries);
+		assertEquals (8, cache.stats().chars);
+		cache.parse("--too-long-to-keep");
+		assertEquals (2, cache.stats().entries);
+		cache.clear();
+		assertEquals (0, cache.stats().entries);
+		assertEquals (0, cache.stats().chars);
+	}
+	// Split into segments, the cache still holds no more than it was given as limits
+	@Test public void testSegmentsKeepToTheLimits() {
+		ParseCache cache = new ParseCache(new FeSimpleArgs(), 1001, 3003);
+		for (int ii=0; ii < 5000; ii++)
+			cache.parse("-" + ii);
+		assertTrue (cache.stats().entries <= 1001);
+		assertTrue (cache.stats().chars <= 3003);
+		cache = new ParseCache(new FeSimpleArgs(), 1000, 3);
+		for (int ii=0; ii < 100; ii++)
+			cache.parse("" + (char) ('a' + ii % 26));
+		assertTrue (cache.stats().chars <= 3);
+	}
+	@Test public void testBadInputIsNotCached() {
+		ParseCache cache = new ParseCache(10);
+		for (int ii=0; ii < 2; ii++) {
+			try {
+				cache.parse("-a=\"unbalanced");
+				fail ("testBadInputIsNotCached: expected an exception");
+			} catch (IllegalArgumentException e) {
+				helper.printResult("testBadInputIsNotCached: Success - " + e.getMessage());
+			}
+		}
+		assertEquals (0, cache.stats().entries);
+	}
+}
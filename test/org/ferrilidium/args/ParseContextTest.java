@@ -0,0 +1,137 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class ParseContextTest {
+	private final FeSimpleArgsTest helper = new FeSimpleArgsTest();
+	private static final String[] LINES = {
+		"-abc=fred --GHI -- param1",
+		"p1 -a   =   \"Fred Flintstone\" --b=foo bar p2",
+		"-x",
+		"",
+		"--long=  two  parts -c p3 -- -d --e=f",
+		"-a=1 -a=2 --name=x --name=y p4",
+	};
+
+	@Test public void testSameAsParse() {
+		ParseContext context = new ParseContext();
+		Result reused = new Result();
+		for (int round=0; round < 3; round++) {
+			for (String line: LINES) {
+				assertSame (reused, context.parseInto(line, reused));
+				helper.assertEqual ("testSameAsParse: " + line, reused, new FeSimpleArgs().parse(line));
+			}
+		}
+	}
+	@Test public void testSameAsParseTokens() {
+		ParseContext context = new ParseContext();
+		Result reused = new FeSimpleArgs().parse("-z --leftover=1 p0");
+		for (String line: LINES) {
+			String[] tokens = line.split(" ");
+			context.parseInto(tokens, reused);
+			helper.assertEqual ("testSameAsParseTokens: " + line, reused, new FeSimpleArgs().parse(tokens));
+		}
+	}
+	@Test public void testViewsAreReused() {
+		ParseContext context = new ParseContext();
+		Result reused = context.parseInto("-a=one --bee=two three", new Result());
+		Set<CharSequence> before = views(reused);
+		context.parseInto("-a=four --bee=five six", reused);
+		assertEquals (before, views(reused));
+		assertEquals ("four", reused.get("a").toString());
+		assertEquals ("five", reused.get("bee").toString());
+		assertEquals ("six", reused.param(0).toString());
+	}
+	private Set<CharSequence> views(Result result) {
+		Set<CharSequence> ret = Collections.newSetFromMap(new IdentityHashMap<CharSequence, Boolean>());
+		ret.add(result.get("a"));
+		ret.add(result.get("bee"));
+		ret.add(result.param(0));
+		assertEquals (3, ret.size());
+		return ret;
+	}
+	@Test public void testContextSurvivesBadInput() {
+		ParseContext context = new ParseContext();
+		Result reused = new Result();
+		try {
+			context.parseInto("--a -- p1", reused);
+			context.parseInto("-a=\"unbalanced", reused);
+			fail ("testContextSurvivesBadInput: no exception");
+		} catch (IllegalArgumentException e) {
+			helper.printResult("testContextSurvivesBadInput: Success");
+		}
+		context.parseInto("-b p2", reused);
+		helper.assertEqual ("testContextSurvivesBadInput", reused, new FeSimpleArgs().parse("-b p2"));
+	}
+	@Test public void testOnlyParsedResultsCanBeReused() {
+		ParseContext context = new ParseContext();
+		try {
+			context.parseInto("-a", new FeSimpleArgs().parse("-b").unmodifiable());
+			fail ("testOnlyParsedResultsCanBeReused: unmodifiable Result reused");
+		} catch (IllegalArgumentException e) {
+			helper.printResult("testOnlyParsedResultsCanBeReused: Success");
+		}
+		try {
+			context.parseInto("-a", new Result(new HashMap<String, String>(), null));
+			fail ("testOnlyParsedResultsCanBeReused: HashMap Result reused");
+		} catch (IllegalArgumentException e) {
+			helper.printResult("testOnlyParsedResultsCanBeReused: Success");
+		}
+	}
+	@Test public void testParseToVisitor() {
+		ParseContext context = new ParseContext();
+		Result reused = new Result();
+		for (String line: LINES) {
+			FeSimpleArgsTest.Collector collector = new FeSimpleArgsTest.Collector();
+			context.parse(line, collector);
+			helper.assertEqual ("testParseToVisitor: " + line, collector.result(), new FeSimpleArgs().parse(line));
+			collector = new FeSimpleArgsTest.Collector();
+			context.parse(line.split(" "), collector);
+			helper.assertEqual ("testParseToVisitor (tokens): " + line, collector.result(), new FeSimpleArgs().parse(line.split(" ")));
+			// and the context still fills Results afterwards
+			helper.assertEqual ("testParseToVisitor (parseInto): " + line, context.parseInto(line, reused), new FeSimpleArgs().parse(line));
+		}
+	}
+	@Test public void testForCurrentThread() throws InterruptedException {
+		ParseContext mine = ParseContext.forCurrentThread();
+		assertSame (mine, ParseContext.forCurrentThread());
+		ParseContext[] theirs = new ParseContext[1];
+		Thread thread = new Thread(() -> theirs[0] = ParseContext.forCurrentThread());
+		thread.start();
+		thread.join();
+		if (theirs[0] == mine)
+			fail ("testForCurrentThread: threads share a context");
+	}
+}
@@ -0,0 +1,125 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.ferrilidium.args.FeSimpleArgs.ArgVisitor;
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.ferrilidium.args.ParseLimits.Limit;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class ParseLimitsTest {
+	private static final ArgVisitor NOTHING = new ArgVisitor() {};
+
+	@Test public void testWithinLimits() {
+		FeSimpleArgs parser = new FeSimpleArgs().setLimits(new ParseLimits()
+				.setMaxInputLength(30).setMaxTokens(6).setMaxArgs(4).setMaxValueLength(5).setMaxMerges(2));
+		Result result = parser.parse("-ab --c = \"d e\" p1 p2");
+		assertEquals ("d e", result.args.get("c"));
+		assertEquals (Arrays.asList("p1", "p2"), result.params);
+	}
+	@Test public void testInputLength() throws Exception {
+		FeSimpleArgs parser = new FeSimpleArgs().setLimits(new ParseLimits().setMaxInputLength(10));
+		exceeds (Limit.INPUT_LENGTH, 10, "Over the limit of 10 characters of input", () -> parser.parse("--name=12345"));
+		exceeds (Limit.INPUT_LENGTH, 10, null, () -> parser.parse(new String[] {"--name", "=12345"}));
+		exceeds (Limit.INPUT_LENGTH, 10, null, () -> parser.parse("--name=12345", NOTHING));
+		exceeds (Limit.INPUT_LENGTH, 10, null, () -> new ParseContext (parser).parseInto("--name=12345", new Result()));
+		exceeds (Limit.INPUT_LENGTH, 10, null, () -> new ParseContext (parser).parse("--name=12345", NOTHING));
+		exceeds (Limit.INPUT_LENGTH, 10, null, () -> parser.parseLazily("--name=12345").args.size());
+		exceeds (Limit.INPUT_LENGTH, 10, null, () -> parser.stream(NOTHING).feed("\"never closed"));
+		exceeds (Limit.INPUT_LENGTH, 10, null, () -> {
+			parser.parse(new StringReader ("          x"), NOTHING);
+		});
+		assertEquals (1, parser.parse("--name=123").args.size());
+	}
+	// A parse takes the limits as they are when it starts, even through a ParseContext (and its Scanner) used before the change
+	@Test public void testChangedBetweenParses() throws Exception {
+		ParseLimits limits = new ParseLimits();
+		FeSimpleArgs parser = new FeSimpleArgs().setLimits(limits);
+		ParseContext context = new ParseContext (parser);
+		assertEquals (4, context.parseInto("-a -b -c -d", new Result()).args.size());
+		limits.setMaxArgs(2);
+		exceeds (Limit.ARGS, 2, null, () -> parser.parse("-a -b -c -d"));
+		exceeds (Limit.ARGS, 2, null, () -> context.parseInto("-a -b -c -d", new Result()));
+		exceeds (Limit.ARGS, 2, null, () -> context.parse("-a -b -c -d", NOTHING));
+		limits.setMaxArgs(Integer.MAX_VALUE);
+		assertEquals (4, context.parseInto("-a -b -c -d", new Result()).args.size());
+	}
+	@Test public void testTokens() throws Exception {
+		FeSimpleArgs parser = new FeSimpleArgs().setLimits(new ParseLimits().setMaxTokens(3));
+		exceeds (Limit.TOKENS, 3, "Over the limit of 3 tokens", () -> parser.parse("a b c d"));
+		exceeds (Limit.TOKENS, 3, null, () -> parser.parse(new String[] {"a", "b", "c", "d"}));
+		assertEquals (3, parser.parse("a b c").params.size());
+	}
+	@Test public void testArgs() throws Exception {
+		FeSimpleArgs parser = new FeSimpleArgs().setLimits(new ParseLimits().setMaxArgs(3));
+		exceeds (Limit.ARGS, 3, "Over the limit of 3 arguments", () -> parser.parse("-abcd"));
+		exceeds (Limit.ARGS, 3, null, () -> parser.parse("--a --a --a --a"));
+		assertEquals (3, parser.parse("-ab --c p1 p2 p3").args.size());
+	}
+	@Test public void testValueLength() throws Exception {
+		FeSimpleArgs parser = new FeSimpleArgs().setLimits(new ParseLimits().setMaxValueLength(5));
+		exceeds (Limit.VALUE_LENGTH, 5, "Over the limit of 5 characters in a value (in \"--name\")", () -> parser.parse("--name=123456"));
+		exceeds (Limit.VALUE_LENGTH, 5, null, () -> parser.parse("--name = \"123 456\""));
+		assertEquals ("12345", parser.parse("--name=12345").args.get("name"));
+	}
+	@Test public void testMerges() throws Exception {
+		FeSimpleArgs parser = new FeSimpleArgs().setLimits(new ParseLimits().setMaxMerges(2));
+		exceeds (Limit.MERGES, 2, "Over the limit of 2 tokens joined onto one argument (in \"-a\")", () -> parser.parse("-a = \"b c d e f"));
+		exceeds (Limit.MERGES, 2, null, () -> parser.parse("--x==y = z w"));
+		assertEquals ("b", parser.parse("-a = b c").args.get("a"));
+	}
+	@Test public void testParseAll() {
+		FeSimpleArgs parser = new FeSimpleArgs().setLimits(new ParseLimits().setMaxTokens(1));
+		try {
+			parser.parseAll(Arrays.asList("a", "b c"));
+			fail ("testParseAll: parsed");
+		} catch (IllegalArgumentException e) {
+			assertEquals (Limit.TOKENS, ((ParseLimitException) e.getCause()).limit());
+		}
+	}
+	@Test(expected=IllegalArgumentException.class) public void testNegative() {
+		new ParseLimits().setMaxTokens(-1);
+	}
+
+	private interface Parse {
+		void run() throws Exception;
+	}
+	private static void exceeds(Limit limit, int max, String message, Parse parse) throws Exception {
+		try {
+			parse.run();
+			fail ("went over the " + limit + " limit without throwing");
+		} catch (ParseLimitException e) {
+			assertSame (limit, e.limit());
+			assertEquals (max, e.max());
+			if (message != null)
+				assertEquals (message, e.getMessage());
+		}
+	}
+}
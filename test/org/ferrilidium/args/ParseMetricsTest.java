@@ -0,0 +1,105 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+public class ParseMetricsTest {
+	@Test public void testCounts() {
+		ParseMetrics metrics = new ParseMetrics();
+		FeSimpleArgs parser = new FeSimpleArgs().setListener(metrics);
+		String line = "-abc = \"Fred Flintstone\" p1 -- p2";    // 6 tokens, of which 2 are merged into -abc
+		parser.parse(line);
+		parser.parse(new String[] {"--x=1", "p3"});
+		ParseMetrics.Snapshot snap = metrics.snapshot();
+		assertEquals (2, snap.parses);
+		assertEquals (0, snap.failures);
+		assertEquals (line.length() + 7, snap.inputChars);
+		assertEquals (6 + 2, snap.tokens);
+		assertEquals (3 + 1, snap.args);
+		assertEquals (2 + 1, snap.params);
+		assertEquals (2, snap.merges);
+		assertTrue (snap.maxNanos > 0);
+		assertTrue (snap.totalNanos >= snap.maxNanos);
+	}
+	@Test public void testFailures() {
+		ParseMetrics metrics = new ParseMetrics();
+		FeSimpleArgs parser = new FeSimpleArgs().setListener(metrics);
+		try {
+			parser.parse("-a=\"unbalanced");
+			fail ("testFailures: no exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals (1, metrics.snapshot().failures);
+		}
+		assertEquals (0, metrics.snapshot().parses);
+		assertEquals (14, metrics.snapshot().inputChars);
+	}
+	@Test public void testOtherEntryPoints() {
+		ParseMetrics metrics = new ParseMetrics();
+		FeSimpleArgs parser = new FeSimpleArgs().setListener(metrics);
+		ParseContext context = new ParseContext(parser);
+		context.parseInto("-a p1", new FeSimpleArgs.Result());
+		context.parseInto(new String[] {"-a", "p1"}, new FeSimpleArgs.Result());
+		parser.parseAll(Arrays.asList("-b", "-c", "-d"));
+		parser.parseAll(Arrays.asList("-e", "-f").stream());
+		parser.parseLazily("-g").contains("g");      // not reported
+		assertEquals (7, metrics.snapshot().parses);
+	}
+	@Test public void testBuckets() {
+		int last = -1;
+		for (long value = 0; value < 100000; value++) {
+			int bucket = ParseMetrics.bucket(value);
+			assertTrue (bucket == last || bucket == last + 1);
+			assertTrue (ParseMetrics.highestIn(bucket) >= value);
+			assertTrue (value == 0 || ParseMetrics.highestIn(bucket) - value <= value / 32);
+			last = bucket;
+		}
+		for (long value: new long[] {Integer.MAX_VALUE, 1L << 40, Long.MAX_VALUE}) {
+			long highest = ParseMetrics.highestIn(ParseMetrics.bucket(value));
+			assertTrue (highest >= value && highest - value <= value / 32);
+		}
+	}
+	@Test public void testPercentiles() {
+		ParseMetrics metrics = new ParseMetrics();
+		for (int ii=1; ii <= 1000; ii++)
+			metrics.parsed(0, 0, 0, 0, 0, ii * 1000L);
+		ParseMetrics.Snapshot snap = metrics.snapshot();
+		assertEquals (1000, snap.parses);
+		assertEquals (500500.0, snap.meanNanos(), 0);
+		assertEquals (1000000, snap.maxNanos);
+		assertEquals (1000000, snap.percentileNanos(100));
+		assertNear (500000, snap.percentileNanos(50));
+		assertNear (990000, snap.percentileNanos(99));
+		assertNear (1000, snap.percentileNanos(0));
+		assertEquals (0, new ParseMetrics().snapshot().percentileNanos(50));
+	}
+	private void assertNear(long expected, long got) {
+		assertTrue ("expected about " + expected + ", got " + got, got >= expected && got - expected <= expected / 32);
+	}
+}
@@ -0,0 +1,150 @@
+package org.ferrilidium.args;
+
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.ferrilidium.args.FeSimpleArgs.Result;
+import org.junit.Test;
+
+/*****************************************************************
+ * Copyright [2017] [Cornelius Perkins]
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * Contributors:
+ *    Cornelius Perkins - initial API and implementation and/or initial documentation
+ *    
+ * Author Cornelius Perkins (ccperkins at both github and bitbucket)
+ ****************************************************************
+ */
+
+/**
+ * Checks that parse time grows in proportion to the size of the input, for inputs of each of the usual shapes and through
+ * each of the entry points (String, String[], bytes, lazy, ArgVisitor and ArgStream): at 256K, 1M and 4M characters, the
+ * time per character must stay within twice what it is at 256K.  Each time is the median of several runs after warming
+ * up, with a collection before each, and the tests run with a young generation big enough for the largest parse (see
+ * core/pom.xml), so that neither a slow moment nor objects promoted part way through a parse are taken for the parser.
+ */
+public class ScalingTest {
+	private static final int[] SIZES = { 1 << 18, 1 << 20, 1 << 22 };  // characters
+	// Linear time keeps the cost per character the same at every size.  Timing jitter and the larger inputs' spilling out of
+	// cache move it a little, so it is allowed to reach twice that of the smallest; n log n would only just pass (x1.2 at
+	// the largest), but n^1.5 takes x4 and fails.
+	private static final double MAX_PER_CHAR_RATIO = 2;
+
+	private final FeSimpleArgs parser = new FeSimpleArgs();
+
+	@Test public void testClusters() {
+		check ("clusters", "-abc=1 -xyz ");
+	}
+	@Test public void testLongOptions() {
+		check ("long options", "--name = value --flag ");
+	}
+	@Test public void testQuotedValues() {
+		check ("quoted values", "--q=\"a  b c\" ");
+	}
+	@Test public void testParams() {
+		check ("params", "param ");
+	}
+	@Test public void testAfterSeparator() {
+		checkTimes ("after --", size -> "-- " + repeat("-p ", size - 3), parser::parse);
+	}
+	@Test public void testOneLongQuotedValue() {
+		checkTimes ("one long quoted value", size -> "-a=\"" + repeat("w ", size - 5) + "\"", parser::parse);
+	}
+	@Test public void testTokens() {
+		checkTimes ("String[]", size -> repeat("--name = value ", size).split(" "), parser::parse);
+	}
+	@Test public void testBytes() {
+		checkTimes ("bytes", size -> repeat("--name=value -abc param ", size).replace(' ', '\0').getBytes(StandardCharsets.UTF_8),
+				bytes -> parser.parse(bytes, 0, bytes.length, (byte) 0));
+	}
+	@Test public void testLazy() {
+		checkTimes ("parseLazily", size -> repeat("--name = value -abc param ", size), line -> {
+			Result result = parser.parseLazily(line);
+			result.args.size();
+			result.params.size();
+		});
+	}
+	@Test public void testStream() {
+		FeSimpleArgs.ArgVisitor visitor = new FeSimpleArgs.ArgVisitor() {
+			@Override public void onShortFlag(char name, CharSequence value) {}
+			@Override public void onLongOption(CharSequence name, CharSequence value) {}
+			@Override public void onParam(CharSequence param) {}
+		};
+		checkTimes ("ArgStream", size -> repeat("--q=\"a  b\" -abc = 1 param ", size).toCharArray(), buf -> {
+			FeSimpleArgs.ArgStream stream = parser.stream(visitor);
+			for (int ii=0; ii < buf.length; ii += 4096)
+				stream.feed(buf, ii, Math.min(4096, buf.length - ii));
+			stream.finish();
+		});
+	}
+	@Test public void testVisitor() {
+		ParseContext context = new ParseContext();
+		FeSimpleArgs.ArgVisitor visitor = new FeSimpleArgs.ArgVisitor() {
+			@Override public void onShortFlag(char name, CharSequence value) {}
+			@Override public void onLongOption(CharSequence name, CharSequence value) {}
+			@Override public void onParam(CharSequence param) {}
+		};
+		checkTimes ("ArgVisitor", size -> repeat("--name = value -abc ", size), line -> context.parse(line, visitor));
+	}
+
+	private void check(String what, String unit) {
+		checkTimes (what, size -> repeat(unit, size), parser::parse);
+	}
+
+	private interface Input<T> {
+		T make(int size);
+	}
+	private static <T> void checkTimes(String what, Input<T> input, Consumer<T> parse) {
+		List<T> inputs = new ArrayList<>();
+		for (int size: SIZES)
+			inputs.add(input.make(size));
+		for (T each: inputs)
+			median(each, parse, 3);   // warm up
+		double[] perChar = new double[SIZES.length];
+		StringBuilder sb = new StringBuilder (what + ":");
+		for (int ii=0; ii < SIZES.length; ii++) {
+			long nanos = median(inputs.get(ii), parse, 7);
+			perChar[ii] = (double) nanos / SIZES[ii];
+			sb.append(String.format(" %d characters took %dus (%.2fns each);", SIZES[ii], nanos / 1000, perChar[ii]));
+		}
+		for (int ii=1; ii < SIZES.length; ii++)
+			assertTrue (sb.toString(), perChar[ii] < perChar[0] * MAX_PER_CHAR_RATIO);
+	}
+	// the median of the runs (this machine has runs well above and below the rest), each starting with the garbage of the
+	// last one collected
+	private static <T> long median(T input, Consumer<T> parse, int runs) {
+		long[] nanos = new long[runs];
+		for (int ii=0; ii < runs; ii++) {
+			System.gc();
+			long start = System.nanoTime();
+			parse.accept(input);
+			nanos[ii] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos[runs / 2];
+	}
+	// unit repeated to make size characters (or a few more)
+	private static String repeat(String unit, int size) {
+		StringBuilder sb = new StringBuilder(size + unit.length());
+		while (sb.length() < size)
+			sb.append(unit);
+		return sb.toString();
+	}
+}